@@ -0,0 +1,64 @@
+package main.java.com.hamza.chatbot_ai_image_generator.prompt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of building the chat prompt: parsing a {@link PromptTemplate} on every call
+ * (the previous behaviour) versus rendering the template compiled once by the registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PromptRenderingBenchmark {
+
+	private PromptTemplateRegistry registry;
+	private String textTemplate;
+	private Map<String, Object> values;
+
+	@Setup
+	public void setUp() {
+		registry = new PromptTemplateRegistry(new DefaultResourceLoader(), new StandardEnvironment(), "classpath:prompts/");
+		textTemplate = registry.get(PromptTemplateRegistry.TEXT).getSource();
+		values = Map.of(
+				"message", "Can you explain how connection pooling works in a Spring Boot application?",
+				"context", "Summary of earlier conversation:\nThe user is building a chatbot with Spring AI.\n\n");
+	}
+
+	@Benchmark
+	public Prompt perCallPromptTemplate() {
+		return new PromptTemplate(textTemplate, values).create();
+	}
+
+	@Benchmark
+	public Prompt compiledTemplate() {
+		return registry.render(PromptTemplateRegistry.TEXT, values);
+	}
+
+	@Benchmark
+	public String compiledTemplateTextOnly() {
+		return registry.get(PromptTemplateRegistry.TEXT).render(values);
+	}
+
+	@Benchmark
+	public Prompt compiledImagePrompt() {
+		return registry.render(PromptTemplateRegistry.IMAGE_GENERATION, Map.of("description", "A lighthouse on a cliff at sunset"));
+	}
+
+	@Benchmark
+	public Prompt compiledPdfPrompt() {
+		return registry.render(PromptTemplateRegistry.PDF_GENERATION, Map.of("request", "A one-page guide to Spring Boot connection pooling"));
+	}
+}
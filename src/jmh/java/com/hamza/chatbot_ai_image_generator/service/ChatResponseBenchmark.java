@@ -0,0 +1,65 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a saved message to its DTO and serializing it the way the web layer does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChatResponseBenchmark {
+
+	private ObjectMapper objectMapper;
+	private ChatMessage message;
+	private ChatResponse response;
+
+	@Setup
+	public void setUp() {
+		// Same date handling as Spring Boot's auto-configured mapper
+		objectMapper = JsonMapper.builder()
+				.findAndAddModules()
+				.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+
+		message = new ChatMessage(new User("benchmark", "benchmark@example.com", "unused"),
+				"How do I keep JDBC connections out of slow model calls?", ChatMessage.MessageType.TEXT);
+		message.setId(42L);
+		message.setAiResponse("Do the lookup and the insert in short transactions and call the model in between. ".repeat(20));
+		message.setCreatedAt(LocalDateTime.now());
+		message.setResponseTimeMs(1250L);
+		message.setTimeToFirstTokenMs(180L);
+		response = ChatService.convertToChatResponse(message);
+	}
+
+	@Benchmark
+	public ChatResponse convertToChatResponse() {
+		return ChatService.convertToChatResponse(message);
+	}
+
+	@Benchmark
+	public byte[] serializeChatResponse() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] convertAndSerialize() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(ChatService.convertToChatResponse(message));
+	}
+}
@@ -0,0 +1,57 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token parsing cost paid by every authenticated request in the JWT filter, with the verified
+ * token cache enabled (steady state) and disabled (first use of each token).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+	private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256-signing";
+
+	private JwtService jwtService;
+	private JwtService uncachedJwtService;
+	private UserDetails userDetails;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtService = new JwtService(SECRET, 86_400_000L, 10_000);
+		uncachedJwtService = new JwtService(SECRET, 86_400_000L, 0);
+		userDetails = User.withUsername("benchmark").password("unused").authorities("USER").build();
+		token = jwtService.generateToken("benchmark");
+	}
+
+	@Benchmark
+	public String extractUsername() {
+		return jwtService.extractUsername(token);
+	}
+
+	@Benchmark
+	public Boolean validateToken() {
+		return jwtService.validateToken(token, userDetails);
+	}
+
+	@Benchmark
+	public Boolean validateTokenUncached() {
+		return uncachedJwtService.validateToken(token, userDetails);
+	}
+
+	@Benchmark
+	public String generateToken() {
+		return jwtService.generateToken("benchmark");
+	}
+}
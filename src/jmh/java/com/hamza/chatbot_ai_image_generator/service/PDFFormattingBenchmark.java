@@ -0,0 +1,59 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML preparation done before iText renders a generated PDF, on a typical model answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PDFFormattingBenchmark {
+
+	private PDFGenerationService pdfGenerationService;
+	private String content;
+	private String request;
+
+	@Setup
+	public void setUp() {
+		// The formatting methods never reach the AI service or the meter registry
+		pdfGenerationService = new PDFGenerationService(null, null);
+		request = "Write a short guide to tuning a <Spring Boot> service & its \"connection pool\"";
+
+		StringBuilder builder = new StringBuilder("[TITLE] Tuning a Spring Boot Service\n");
+		for (int section = 1; section <= 6; section++) {
+			builder.append("[SECTION] Section ").append(section).append(": Pools & Threads\n");
+			for (int sub = 1; sub <= 2; sub++) {
+				builder.append("[SUBSECTION] Part ").append(sub).append('\n');
+				for (int paragraph = 0; paragraph < 3; paragraph++) {
+					builder.append("Keep the pool small (<= 2x cores) and measure p99 latency before & after each change; ")
+							.append("don't guess, use \"real\" load.\n");
+				}
+			}
+		}
+		content = builder.toString();
+	}
+
+	@Benchmark
+	public String convertToHTML() {
+		return pdfGenerationService.convertToHTML(content, request);
+	}
+
+	@Benchmark
+	public String formatContent() {
+		return pdfGenerationService.formatContent(content);
+	}
+
+	@Benchmark
+	public String escapeHtml() {
+		return pdfGenerationService.escapeHtml(request);
+	}
+}
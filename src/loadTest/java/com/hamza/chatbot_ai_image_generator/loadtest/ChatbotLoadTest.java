@@ -0,0 +1,229 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the whole application on a random port with {@link FakeChatModel} in place of the real
+ * providers, then has {@code load.concurrency} simulated users register, log in and keep sending
+ * messages, reading history and downloading generated PDFs for {@code load.duration-seconds}.
+ * Throughput, latency percentiles per operation and pool/thread saturation are published to the
+ * test report and written to {@code load.report-dir}/summary.json.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.ai.model.chat=none",
+		"spring.ai.model.embedding=none",
+		"spring.ai.model.embedding.text=none",
+		"spring.ai.model.embedding.multimodal=none",
+		"spring.ai.model.moderation=none",
+		"spring.jpa.show-sql=false",
+		"app.ai.cache.enabled=false",
+		// Measures the backend, not the throttle; run with -Pload.rate-limit.enabled=true to include it
+		"app.rate-limit.enabled=${load.rate-limit.enabled:false}",
+		"app.upload.dir=build/loadtest-uploads",
+		"logging.level.main.java.com.hamza=WARN"
+})
+class ChatbotLoadTest {
+
+	private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+	private static final String PASSWORD = "load-test-password";
+
+	@TestConfiguration
+	static class FakeModelConfig {
+		@Bean
+		@Primary
+		ChatModel fakeChatModel() {
+			return new FakeChatModel(SETTINGS);
+		}
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ChatModel chatModel;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ServletWebServerApplicationContext context;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	private final LatencyRecorder recorder = new LatencyRecorder();
+	private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+	@Test
+	void runLoadProfile(TestReporter reporter) throws Exception {
+		long startNanos;
+		Map<String, Object> saturation;
+		try (SaturationSampler sampler = new SaturationSampler(dataSource, context.getWebServer());
+			 ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+			sampler.start();
+			startNanos = System.nanoTime();
+			long deadline = startNanos + SETTINGS.duration().toNanos();
+			for (int i = 0; i < SETTINGS.concurrency(); i++) {
+				int index = i;
+				long startDelay = SETTINGS.rampUp().toNanos() * i / SETTINGS.concurrency();
+				users.submit(() -> runUser(index, startDelay, deadline));
+			}
+			users.shutdown();
+			users.awaitTermination(SETTINGS.duration().toSeconds() + 120, TimeUnit.SECONDS);
+			saturation = sampler.summarize();
+		}
+		double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+		FakeChatModel model = (FakeChatModel) chatModel;
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("settings", SETTINGS.toMap());
+		report.put("elapsedSeconds", elapsedSeconds);
+		report.put("totalRequests", recorder.totalRequests());
+		report.put("totalErrors", recorder.totalErrors());
+		report.put("throughputPerSecond", recorder.totalRequests() / elapsedSeconds);
+		report.put("modelCalls", model.getCalls());
+		report.put("modelInjectedFailures", model.getFailures());
+		report.put("operations", recorder.summarize(elapsedSeconds));
+		report.put("saturation", saturation);
+
+		String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+		Path reportDir = Path.of(SETTINGS.reportDir());
+		Files.createDirectories(reportDir);
+		Path summary = Files.writeString(reportDir.resolve("summary.json"), json);
+		reporter.publishEntry("summary", json);
+		reporter.publishEntry("report", summary.toAbsolutePath().toString());
+
+		assertTrue(recorder.totalRequests() > 0, "load test issued no requests");
+	}
+
+	private void runUser(int index, long startDelayNanos, long deadlineNanos) {
+		pause(Duration.ofNanos(startDelayNanos));
+		String username = "load-" + runId + "-" + index;
+
+		String token = register(username);
+		if (token == null) {
+			return;
+		}
+		String loginToken = login(username);
+		if (loginToken != null) {
+			token = loginToken;
+		}
+
+		int sent = 0;
+		while (System.nanoTime() < deadlineNanos) {
+			if (ThreadLocalRandom.current().nextDouble() < SETTINGS.pdfRatio()) {
+				String pdfUrl = sendMessage(token, "PDF_GENERATION", "message.pdf", "pdfUrl",
+						"Write a short report number " + sent + " for " + username);
+				if (pdfUrl != null) {
+					get(token, "download.pdf", URI.create(pdfUrl).getPath());
+				}
+			} else {
+				sendMessage(token, "TEXT", "message.text", "response",
+						"Question " + sent + " from " + username + ": how do I tune a connection pool?");
+			}
+			sent++;
+			if (SETTINGS.historyEvery() > 0 && sent % SETTINGS.historyEvery() == 0) {
+				get(token, "history", "/api/chat/history?size=20");
+			}
+			pause(SETTINGS.thinkTime());
+		}
+	}
+
+	private String register(String username) {
+		JsonNode body = post(null, "register", "/api/auth/register",
+				Map.of("username", username, "email", username + "@example.com", "password", PASSWORD));
+		return body == null ? null : body.path("token").asText(null);
+	}
+
+	private String login(String username) {
+		JsonNode body = post(null, "login", "/api/auth/login", Map.of("username", username, "password", PASSWORD));
+		return body == null ? null : body.path("token").asText(null);
+	}
+
+	private String sendMessage(String token, String type, String operation, String resultField, String message) {
+		JsonNode body = post(token, operation, "/api/chat/message", Map.of("message", message, "messageType", type));
+		return body == null ? null : body.path(resultField).asText(null);
+	}
+
+	private JsonNode post(String token, String operation, String path, Map<String, String> payload) {
+		try {
+			HttpRequest.Builder request = request(token, path)
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+			HttpResponse<byte[]> response = send(operation, request.build());
+			if (response == null || response.statusCode() / 100 != 2) {
+				return null;
+			}
+			return objectMapper.readTree(response.body());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void get(String token, String operation, String path) {
+		send(operation, request(token, path).GET().build());
+	}
+
+	private HttpRequest.Builder request(String token, String path) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.timeout(Duration.ofSeconds(120));
+		if (token != null) {
+			builder.header("Authorization", "Bearer " + token);
+		}
+		return builder;
+	}
+
+	// Transport failures are recorded with status 0
+	private HttpResponse<byte[]> send(String operation, HttpRequest request) {
+		long start = System.nanoTime();
+		try {
+			HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+			recorder.record(operation, System.nanoTime() - start, response.statusCode());
+			return response;
+		} catch (IOException e) {
+			recorder.record(operation, System.nanoTime() - start, 0);
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private static void pause(Duration duration) {
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a remote chat model. Time to first token follows a log-normal
+ * distribution fitted to the configured median and p99, the answer then arrives at a fixed token
+ * rate, and a configurable share of calls fails. Blocking calls in flight are counted, with their peak.
+ */
+class FakeChatModel implements ChatModel {
+
+	// z-score of the 99th percentile of a standard normal distribution
+	private static final double Z_99 = 2.3263;
+
+	private static final String ANSWER_HEAD = "[TITLE] Load test answer\n[SECTION] Overview\n";
+
+	private final LoadTestSettings settings;
+	private final double sigma;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+
+	FakeChatModel(LoadTestSettings settings) {
+		super();
+		this.settings = settings;
+		double ratio = (double) settings.modelP99Latency().toMillis() / Math.max(1, settings.modelMedianLatency().toMillis());
+		this.sigma = Math.log(Math.max(1.0, ratio)) / Z_99;
+	}
+
+	@Override
+	public ChatResponse call(Prompt prompt) {
+		calls.increment();
+		peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			sleep(firstTokenLatency().plus(generationTime()));
+		} finally {
+			inFlight.decrementAndGet();
+		}
+		failMaybe();
+		return response(ANSWER_HEAD + "word ".repeat(settings.modelTokens()));
+	}
+
+	@Override
+	public Flux<ChatResponse> stream(Prompt prompt) {
+		calls.increment();
+		Duration perToken = Duration.ofNanos((long) (1_000_000_000L / settings.modelTokensPerSecond()));
+		boolean fail = shouldFail();
+		Flux<ChatResponse> tokens = Flux.range(0, settings.modelTokens())
+				.delayElements(perToken)
+				.map(i -> response(i == 0 ? ANSWER_HEAD : "word "))
+				.delaySubscription(firstTokenLatency());
+		if (fail) {
+			failures.increment();
+			return tokens.take(settings.modelTokens() / 2)
+					.concatWith(Flux.error(new IllegalStateException("Injected fake model failure")));
+		}
+		return tokens;
+	}
+
+	long getCalls() {
+		return calls.sum();
+	}
+
+	long getFailures() {
+		return failures.sum();
+	}
+
+	int getPeakInFlight() {
+		return peakInFlight.get();
+	}
+
+	private Duration firstTokenLatency() {
+		double millis = settings.modelMedianLatency().toMillis() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+		return Duration.ofMillis(Math.round(millis));
+	}
+
+	private Duration generationTime() {
+		return Duration.ofMillis(Math.round(settings.modelTokens() * 1000.0 / settings.modelTokensPerSecond()));
+	}
+
+	private boolean shouldFail() {
+		return settings.modelErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.modelErrorRate();
+	}
+
+	private void failMaybe() {
+		if (shouldFail()) {
+			failures.increment();
+			throw new IllegalStateException("Injected fake model failure");
+		}
+	}
+
+	private static ChatResponse response(String text) {
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+	}
+
+	private static void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Fake model call interrupted", e);
+		}
+	}
+}
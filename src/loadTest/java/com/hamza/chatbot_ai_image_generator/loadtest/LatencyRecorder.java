@@ -0,0 +1,78 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects raw latencies and outcomes per operation; percentiles are computed once at the end.
+ */
+class LatencyRecorder {
+
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+	void record(String operation, long latencyNanos, int status) {
+		Operation op = operations.computeIfAbsent(operation, name -> new Operation());
+		op.latencies.add(latencyNanos);
+		if (status >= 200 && status < 300) {
+			op.ok.increment();
+		} else {
+			op.errors.increment();
+			op.statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+		}
+	}
+
+	long totalRequests() {
+		return operations.values().stream().mapToLong(op -> op.latencies.size()).sum();
+	}
+
+	long totalErrors() {
+		return operations.values().stream().mapToLong(op -> op.errors.sum()).sum();
+	}
+
+	Map<String, Object> summarize(double elapsedSeconds) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		operations.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.forEach(entry -> summary.put(entry.getKey(), entry.getValue().summarize(elapsedSeconds)));
+		return summary;
+	}
+
+	private static final class Operation {
+		private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+		private final LongAdder ok = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+		private Map<String, Object> summarize(double elapsedSeconds) {
+			long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+			Arrays.sort(sorted);
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("count", sorted.length);
+			result.put("ok", ok.sum());
+			result.put("errors", errors.sum());
+			Map<String, Long> errorStatuses = new LinkedHashMap<>();
+			statuses.forEach((status, count) -> errorStatuses.put(String.valueOf(status), count.sum()));
+			result.put("errorStatuses", errorStatuses);
+			result.put("throughputPerSecond", sorted.length / elapsedSeconds);
+			result.put("p50Ms", percentileMillis(sorted, 50));
+			result.put("p90Ms", percentileMillis(sorted, 90));
+			result.put("p99Ms", percentileMillis(sorted, 99));
+			result.put("maxMs", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1_000_000.0);
+			return result;
+		}
+
+		private static double percentileMillis(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0.0;
+			}
+			int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+			return sorted[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
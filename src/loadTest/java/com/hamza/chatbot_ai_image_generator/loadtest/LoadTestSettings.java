@@ -0,0 +1,61 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load profile and fake model behaviour, read from {@code load.*} system properties so a run can be
+ * tuned from the command line, e.g. {@code ./gradlew loadTest -Pload.concurrency=100}.
+ */
+record LoadTestSettings(
+		int concurrency,
+		Duration duration,
+		Duration rampUp,
+		Duration thinkTime,
+		double pdfRatio,
+		int historyEvery,
+		Duration modelMedianLatency,
+		Duration modelP99Latency,
+		int modelTokens,
+		double modelTokensPerSecond,
+		double modelErrorRate,
+		String reportDir) {
+
+	static LoadTestSettings fromSystemProperties() {
+		return new LoadTestSettings(
+				Integer.getInteger("load.concurrency", 20),
+				Duration.ofSeconds(Long.getLong("load.duration-seconds", 30L)),
+				Duration.ofSeconds(Long.getLong("load.ramp-up-seconds", 5L)),
+				Duration.ofMillis(Long.getLong("load.think-time-ms", 200L)),
+				doubleProperty("load.pdf-ratio", 0.1),
+				Integer.getInteger("load.history-every", 5),
+				Duration.ofMillis(Long.getLong("load.model.median-latency-ms", 400L)),
+				Duration.ofMillis(Long.getLong("load.model.p99-latency-ms", 2000L)),
+				Integer.getInteger("load.model.tokens", 150),
+				doubleProperty("load.model.tokens-per-second", 300.0),
+				doubleProperty("load.model.error-rate", 0.0),
+				System.getProperty("load.report-dir", "build/reports/loadtest"));
+	}
+
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("concurrency", concurrency);
+		map.put("durationSeconds", duration.toSeconds());
+		map.put("rampUpSeconds", rampUp.toSeconds());
+		map.put("thinkTimeMs", thinkTime.toMillis());
+		map.put("pdfRatio", pdfRatio);
+		map.put("historyEvery", historyEvery);
+		map.put("modelMedianLatencyMs", modelMedianLatency.toMillis());
+		map.put("modelP99LatencyMs", modelP99Latency.toMillis());
+		map.put("modelTokens", modelTokens);
+		map.put("modelTokensPerSecond", modelTokensPerSecond);
+		map.put("modelErrorRate", modelErrorRate);
+		return map;
+	}
+
+	private static double doubleProperty(String name, double defaultValue) {
+		String value = System.getProperty(name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+}
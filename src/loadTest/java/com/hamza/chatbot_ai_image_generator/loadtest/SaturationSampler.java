@@ -0,0 +1,95 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Polls the Hikari pool, the Tomcat request executor and the JVM thread count while the load runs
+ * and keeps the peaks, to show which resource saturates first.
+ */
+class SaturationSampler implements AutoCloseable {
+
+	private static final long INTERVAL_MS = 100;
+
+	private final HikariDataSource dataSource;
+	private final Executor tomcatExecutor;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+	private final AtomicLong samples = new AtomicLong();
+	private final AtomicLong hikariActiveSum = new AtomicLong();
+	private final AtomicInteger hikariMaxActive = new AtomicInteger();
+	private final AtomicInteger hikariMaxPending = new AtomicInteger();
+	private final AtomicLong samplesWithPending = new AtomicLong();
+	private final AtomicInteger tomcatMaxBusy = new AtomicInteger();
+
+	SaturationSampler(DataSource dataSource, WebServer webServer) throws SQLException {
+		super();
+		this.dataSource = dataSource.unwrap(HikariDataSource.class);
+		this.tomcatExecutor = webServer instanceof TomcatWebServer tomcat
+				? tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor()
+				: null;
+	}
+
+	void start() {
+		threads.resetPeakThreadCount();
+		scheduler.scheduleAtFixedRate(this::sample, 0, INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	Map<String, Object> summarize() {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		long count = Math.max(1, samples.get());
+		summary.put("hikariPoolSize", dataSource.getMaximumPoolSize());
+		summary.put("hikariMaxActive", hikariMaxActive.get());
+		summary.put("hikariMeanActive", (double) hikariActiveSum.get() / count);
+		summary.put("hikariMaxPending", hikariMaxPending.get());
+		summary.put("hikariPendingSampleRatio", (double) samplesWithPending.get() / count);
+		if (tomcatExecutor instanceof ThreadPoolExecutor pool) {
+			summary.put("tomcatMaxThreads", pool.getMaximumPoolSize());
+			summary.put("tomcatMaxBusy", tomcatMaxBusy.get());
+		} else {
+			summary.put("tomcatExecutor", tomcatExecutor == null ? "unknown" : tomcatExecutor.getClass().getSimpleName());
+		}
+		summary.put("jvmPeakThreads", threads.getPeakThreadCount());
+		return summary;
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	private void sample() {
+		samples.incrementAndGet();
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		if (pool != null) {
+			int active = pool.getActiveConnections();
+			int pending = pool.getThreadsAwaitingConnection();
+			hikariActiveSum.addAndGet(active);
+			hikariMaxActive.accumulateAndGet(active, Math::max);
+			hikariMaxPending.accumulateAndGet(pending, Math::max);
+			if (pending > 0) {
+				samplesWithPending.incrementAndGet();
+			}
+		}
+		if (tomcatExecutor instanceof ThreadPoolExecutor pool) {
+			tomcatMaxBusy.accumulateAndGet(pool.getActiveCount(), Math::max);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package main.java.com.hamza.chatbot_ai_image_generator.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import main.java.com.hamza.chatbot_ai_image_generator.ChatbotAiImageGeneratorApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application twice on a random port, with {@code spring.threads.virtual.enabled} off and
+ * then on, and fires {@code load.virtual-threads.chats} simultaneous chats at each over HTTP. For
+ * both modes it reports how many blocking model calls were in flight at once, how busy Tomcat's
+ * request threads got and how long the burst took, to {@code load.report-dir}/virtual-threads.json.
+ * The numbers are reported, not asserted: they depend on the machine.
+ */
+class VirtualThreadModeLoadTest {
+
+	private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+	private static final int CHATS = Integer.getInteger("load.virtual-threads.chats", 800);
+	private static final String PASSWORD = "load-test-password";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+	@Test
+	void compareRequestThreadModes(TestReporter reporter) throws Exception {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("settings", SETTINGS.toMap());
+		report.put("chats", CHATS);
+		for (boolean virtualThreads : new boolean[] {false, true}) {
+			String mode = virtualThreads ? "virtual" : "platform";
+			Map<String, Object> result = run(virtualThreads);
+			reporter.publishEntry(mode, result.toString());
+			report.put(mode, result);
+			assertTrue((int) result.get("succeeded") > 0, mode + " run completed no chats");
+		}
+
+		Path reportDir = Path.of(SETTINGS.reportDir());
+		Files.createDirectories(reportDir);
+		Files.writeString(reportDir.resolve("virtual-threads.json"),
+				objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+	}
+
+	private Map<String, Object> run(boolean virtualThreads) throws Exception {
+		FakeChatModel model = new FakeChatModel(SETTINGS);
+		try (ConfigurableApplicationContext context = boot(model, virtualThreads)) {
+			ServletWebServerApplicationContext webContext = (ServletWebServerApplicationContext) context;
+			String baseUrl = "http://localhost:" + webContext.getWebServer().getPort();
+			String token = register(baseUrl, "vt-" + (virtualThreads ? "on" : "off") + "-" + System.nanoTime());
+
+			AtomicInteger succeeded = new AtomicInteger();
+			Map<String, Object> saturation;
+			long start = System.nanoTime();
+			try (SaturationSampler sampler = new SaturationSampler(context.getBean(DataSource.class), webContext.getWebServer());
+				 ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+				sampler.start();
+				List<Future<?>> chats = new ArrayList<>();
+				for (int i = 0; i < CHATS; i++) {
+					String message = "Question " + i + ": how many threads does this take?";
+					chats.add(clients.submit(() -> {
+						if (sendMessage(baseUrl, token, message)) {
+							succeeded.incrementAndGet();
+						}
+					}));
+				}
+				for (Future<?> chat : chats) {
+					chat.get();
+				}
+				saturation = sampler.summarize();
+			}
+			long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("virtualThreads", virtualThreads);
+			result.put("succeeded", succeeded.get());
+			result.put("elapsedMs", elapsedMillis);
+			result.put("throughputPerSecond", succeeded.get() * 1000.0 / Math.max(1, elapsedMillis));
+			result.put("peakModelCallsInFlight", model.getPeakInFlight());
+			result.put("saturation", saturation);
+			return result;
+		}
+	}
+
+	private static ConfigurableApplicationContext boot(FakeChatModel model, boolean virtualThreads) {
+		return new SpringApplicationBuilder(ChatbotAiImageGeneratorApplication.class)
+				.initializers(context -> ((GenericApplicationContext) context).registerBean(
+						"fakeChatModel", ChatModel.class, () -> model, definition -> definition.setPrimary(true)))
+				.properties(
+						"server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"spring.ai.model.chat=none",
+						"spring.ai.model.embedding=none",
+						"spring.ai.model.embedding.text=none",
+						"spring.ai.model.embedding.multimodal=none",
+						"spring.ai.model.moderation=none",
+						"spring.jpa.show-sql=false",
+						"app.ai.cache.enabled=false",
+						"app.rate-limit.enabled=false",
+						// Above the burst, so the bulkhead does not cap in-flight model calls in either mode
+						"app.ai.resilience.text.max-concurrent=" + (CHATS + 1),
+						"app.upload.dir=build/loadtest-uploads",
+						"logging.level.main.java.com.hamza=WARN")
+				.run();
+	}
+
+	private String register(String baseUrl, String username) throws Exception {
+		HttpResponse<byte[]> response = post(baseUrl, null, "/api/auth/register",
+				Map.of("username", username, "email", username + "@example.com", "password", PASSWORD));
+		JsonNode body = objectMapper.readTree(response.body());
+		return body.path("token").asText();
+	}
+
+	private boolean sendMessage(String baseUrl, String token, String message) {
+		try {
+			HttpResponse<byte[]> response = post(baseUrl, token, "/api/chat/message",
+					Map.of("message", message, "messageType", "TEXT"));
+			return response.statusCode() / 100 == 2;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private HttpResponse<byte[]> post(String baseUrl, String token, String path, Map<String, String> payload) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.timeout(Duration.ofSeconds(120))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+}
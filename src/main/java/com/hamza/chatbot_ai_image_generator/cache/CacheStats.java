@@ -0,0 +1,30 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    
+    public CacheStats(long hits, long misses, long evictions, int size) {
+        super();
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+    
+    public long getHits() { return hits; }
+    
+    public long getMisses() { return misses; }
+    
+    public long getEvictions() { return evictions; }
+    
+    public int getSize() { return size; }
+    
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
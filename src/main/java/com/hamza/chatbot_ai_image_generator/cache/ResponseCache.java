@@ -0,0 +1,18 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import java.util.Optional;
+
+/**
+ * Exact-match cache for model responses, keyed by {@link ResponseCacheKey}.
+ * Implementations must be safe for concurrent use.
+ */
+public interface ResponseCache {
+
+    Optional<String> get(String key);
+    
+    void put(String key, String response);
+    
+    void clear();
+    
+    CacheStats getStats();
+}
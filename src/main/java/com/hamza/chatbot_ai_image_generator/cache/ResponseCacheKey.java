@@ -0,0 +1,38 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+public final class ResponseCacheKey {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private ResponseCacheKey() {
+        super();
+    }
+    
+    /**
+     * Builds a fixed-size key from the rendered prompt and the options that influence the answer.
+     * Whitespace differences in the prompt do not produce distinct keys.
+     */
+    public static String of(String renderedPrompt, String model, Double temperature) {
+        String normalized = normalize(renderedPrompt);
+        return sha256(model + '\u0000' + temperature + '\u0000' + normalized);
+    }
+    
+    static String normalize(String prompt) {
+        return WHITESPACE.matcher(prompt.trim()).replaceAll(" ");
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Returns a previous answer when a new user message is semantically close to one already answered.
+ * Messages are embedded once per lookup and compared by cosine similarity against earlier messages
+ * of the same type, matching only above that type's threshold; a miss hands its embedding back so
+ * storing the answer does not embed the message again. Entries expire after {@code ttl}, and the
+ * oldest are evicted first once {@code maxEntries} is reached.
+ * <p>
+ * The embeddings are kept here rather than in Spring AI's {@code SimpleVectorStore}: the store
+ * embeds every document it adds, so a miss would cost two embedding calls, and it has no expiry.
+ * A linear scan is cheap at the entry counts this cache is sized for.
+ */
+public class SemanticResponseCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final Map<MessageType, Double> thresholds;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    
+    // Insertion order, which is also expiry order
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<MessageType, LongAdder> hits = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, LongAdder> misses = new EnumMap<>(MessageType.class);
+    private final LongAdder evictions = new LongAdder();
+    
+    public SemanticResponseCache(EmbeddingModel embeddingModel, Map<MessageType, Double> thresholds, int maxEntries,
+                                 Duration ttl) {
+        this(embeddingModel, thresholds, maxEntries, ttl, Clock.systemUTC());
+    }
+    
+    public SemanticResponseCache(EmbeddingModel embeddingModel, Map<MessageType, Double> thresholds, int maxEntries,
+                                 Duration ttl, Clock clock) {
+        super();
+        this.embeddingModel = embeddingModel;
+        this.thresholds = new EnumMap<>(thresholds);
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        for (MessageType type : MessageType.values()) {
+            hits.put(type, new LongAdder());
+            misses.put(type, new LongAdder());
+        }
+    }
+    
+    public Lookup lookup(MessageType type, String userMessage) {
+        float[] embedding = normalize(embeddingModel.embed(userMessage));
+        double threshold = thresholds.getOrDefault(type, 1.0);
+        long now = clock.millis();
+        
+        Entry best = null;
+        double bestSimilarity = threshold;
+        lock.readLock().lock();
+        try {
+            for (Entry entry : entries) {
+                if (entry.type != type || entry.expiresAt <= now) {
+                    continue;
+                }
+                double similarity = dot(embedding, entry.embedding);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        if (best != null) {
+            hits.get(type).increment();
+            return new Lookup(type, embedding, best.response);
+        }
+        misses.get(type).increment();
+        return new Lookup(type, embedding, null);
+    }
+    
+    /**
+     * Stores the answer to a message that missed, reusing the embedding from its lookup.
+     */
+    public void put(Lookup lookup, String response) {
+        long now = clock.millis();
+        lock.writeLock().lock();
+        try {
+            purgeExpired(now);
+            entries.addLast(new Entry(lookup.type, lookup.embedding, response, now + ttlMillis));
+            while (entries.size() > maxEntries) {
+                entries.pollFirst();
+                evictions.increment();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (MessageType type : MessageType.values()) {
+            long typeHits = hits.get(type).sum();
+            long typeMisses = misses.get(type).sum();
+            long total = typeHits + typeMisses;
+            stats.put(type.name(), Map.of(
+                    "threshold", thresholds.getOrDefault(type, 1.0),
+                    "hits", typeHits,
+                    "misses", typeMisses,
+                    "hitRate", total == 0 ? 0.0 : (double) typeHits / total));
+        }
+        lock.readLock().lock();
+        try {
+            stats.put("size", entries.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+    
+    // Caller holds the write lock
+    private void purgeExpired(long now) {
+        Iterator<Entry> oldestFirst = entries.iterator();
+        while (oldestFirst.hasNext() && oldestFirst.next().expiresAt <= now) {
+            oldestFirst.remove();
+            evictions.increment();
+        }
+    }
+    
+    // Unit length, so the dot product of two embeddings is their cosine similarity
+    private static float[] normalize(float[] vector) {
+        double sumOfSquares = 0;
+        for (float component : vector) {
+            sumOfSquares += component * component;
+        }
+        double norm = Math.sqrt(sumOfSquares);
+        float[] normalized = new float[vector.length];
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = (float) (vector[i] / norm);
+            }
+        }
+        return normalized;
+    }
+    
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Result of one lookup: the cached answer if a similar message was found, and the message's
+     * embedding for {@link #put(Lookup, String)}.
+     */
+    public static final class Lookup {
+        private final MessageType type;
+        private final float[] embedding;
+        private final String response;
+        
+        private Lookup(MessageType type, float[] embedding, String response) {
+            this.type = type;
+            this.embedding = embedding;
+            this.response = response;
+        }
+        
+        public Optional<String> getResponse() {
+            return Optional.ofNullable(response);
+        }
+    }
+    
+    private static final class Entry {
+        private final MessageType type;
+        private final float[] embedding;
+        private final String response;
+        private final long expiresAt;
+        
+        private Entry(MessageType type, float[] embedding, String response, long expiresAt) {
+            this.type = type;
+            this.embedding = embedding;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived cache of users by username, shared by request authentication and the chat services
+ * so steady-state requests do not look the same user up on every call. Entries are detached
+ * entities and may be slightly stale; {@link #invalidate(String)} must be called whenever a user's
+ * credentials change, which also revokes tokens issued before the change.
+ * <p>
+ * Revocations are held in memory, so on a multi-node deployment each node only knows about
+ * password changes it handled itself until the entries expire.
+ */
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long tokenLifetimeMillis;
+    
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public UserCache(UserRepository userRepository, Duration ttl, int maxEntries, Duration tokenLifetime) {
+        super();
+        this.userRepository = userRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.tokenLifetimeMillis = tokenLifetime.toMillis();
+    }
+    
+    public Optional<User> getUser(String username) {
+        return entry(username).map(Entry::user);
+    }
+    
+    public Optional<UserDetails> getUserDetails(String username) {
+        return entry(username).map(Entry::details);
+    }
+    
+    /**
+     * Evicts the user so the next lookup reads it again; issued tokens stay valid.
+     */
+    public void evict(String username) {
+        users.remove(username);
+    }
+    
+    /**
+     * Evicts the user and rejects every token issued to them up to and including the current
+     * millisecond. Returns once the clock has moved past it, so a token issued afterwards, such as
+     * the one handed back by a password change, is accepted.
+     */
+    public void invalidate(String username) {
+        users.remove(username);
+        long now = System.currentTimeMillis();
+        revokedBefore.put(username, now);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < now - tokenLifetimeMillis);
+        while (System.currentTimeMillis() == now) {
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * Whether the token was issued at or before the user's last revocation. A second-precision
+     * issue time is the start of its second, so a token from earlier in the second of the change
+     * is rejected too.
+     */
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long revokedAt = revokedBefore.get(username);
+        return revokedAt != null && (issuedAt == null || issuedAt.getTime() <= revokedAt);
+    }
+    
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return Map.of(
+                "size", users.size(),
+                "maxEntries", maxEntries,
+                "hits", hitCount,
+                "misses", missCount,
+                "hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount),
+                "revocations", revokedBefore.size());
+    }
+    
+    private Optional<Entry> entry(String username) {
+        Entry cached = users.get(username);
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            users.remove(username, cached);
+        }
+        misses.increment();
+        
+        Optional<Entry> loaded = userRepository.findByUsername(username)
+                .map(user -> new Entry(user, toUserDetails(user), now + ttlMillis));
+        loaded.ifPresent(entry -> {
+            makeRoom(now);
+            users.put(username, entry);
+        });
+        return loaded;
+    }
+    
+    private void makeRoom(long now) {
+        if (users.size() < maxEntries) {
+            return;
+        }
+        users.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<String> iterator = users.keySet().iterator();
+        while (users.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+    
+    public static UserDetails toUserDetails(User user) {
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(user.getUsername())
+                .password(user.getPassword())
+                .roles(user.getRole() == null ? User.Role.USER.name() : user.getRole().name())
+                .build();
+    }
+    
+    private record Entry(User user, UserDetails details, long expiresAt) {
+    }
+}
@@ -0,0 +1,127 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.Bulkhead;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.CircuitBreaker;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.ResiliencePolicy;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.HedgedCallExecutor;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelProvider;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter.RouteOverride;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.RollingLatencyHistogram;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.google.genai.GoogleGenAiChatModel;
+import org.springframework.ai.mistralai.MistralAiChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Configuration
+public class AIProviderConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIProviderConfig.class);
+    
+    public AIProviderConfig() {
+        super();
+    }
+    
+    // One ChatClient per ChatModel bean; Gemini and Mistral get stable names, anything else keeps its bean name
+    @Bean
+    public ModelRouter modelRouter(Map<String, ChatModel> chatModels,
+                                   Environment environment,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.ai.google.genai.chat.options.model:gemini-pro}") String geminiModel,
+                                   @Value("${spring.ai.mistralai.chat.options.model:mistral-small-latest}") String mistralModel,
+                                   @Value("${app.ai.router.stats-window:256}") int statsWindow,
+                                   @Value("${app.ai.router.max-error-rate:0.5}") double maxErrorRate,
+                                   @Value("${app.ai.router.min-samples:10}") int minSamples,
+                                   @Value("${app.ai.router.exploration-ratio:0.05}") double explorationRatio,
+                                   @Value("${app.ai.resilience.breaker.window-size:20}") int breakerWindow,
+                                   @Value("${app.ai.resilience.breaker.min-calls:10}") int breakerMinCalls,
+                                   @Value("${app.ai.resilience.breaker.failure-rate-threshold:0.5}") double breakerThreshold,
+                                   @Value("${app.ai.resilience.breaker.open-duration-ms:30000}") long breakerOpenMillis,
+                                   @Value("${app.ai.resilience.breaker.half-open-permits:2}") int breakerHalfOpenPermits,
+                                   @Value("${app.stats.latency.window-seconds:300}") long latencyWindowSeconds,
+                                   @Value("${app.stats.latency.slots:5}") int latencySlots) {
+        List<ModelProvider> providers = new ArrayList<>();
+        chatModels.forEach((beanName, chatModel) -> {
+            String name;
+            String model;
+            if (chatModel instanceof GoogleGenAiChatModel) {
+                name = "gemini";
+                model = geminiModel;
+            } else if (chatModel instanceof MistralAiChatModel) {
+                name = "mistral";
+                model = mistralModel;
+            } else {
+                name = beanName;
+                model = beanName;
+            }
+            CircuitBreaker breaker = new CircuitBreaker(name, breakerWindow, breakerMinCalls, breakerThreshold,
+                    breakerOpenMillis, breakerHalfOpenPermits);
+            RollingLatencyHistogram latency = new RollingLatencyHistogram(latencyWindowSeconds * 1000, latencySlots);
+            Double temperature = chatModel.getDefaultOptions().getTemperature();
+            providers.add(new ModelProvider(name, ChatClient.create(chatModel), model, statsWindow, breaker, latency,
+                    temperature));
+            logger.info("Registered chat model provider '{}' ({})", name, model);
+        });
+        
+        Map<MessageType, RouteOverride> overrides = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            String prefix = "app.ai.router.override." + type.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            String provider = environment.getProperty(prefix + ".provider");
+            String model = environment.getProperty(prefix + ".model");
+            if (hasText(provider) || hasText(model)) {
+                overrides.put(type, new RouteOverride(hasText(provider) ? provider : null, hasText(model) ? model : null));
+            }
+        }
+        
+        return new ModelRouter(providers, overrides, maxErrorRate, minSamples, explorationRatio, meterRegistry);
+    }
+    
+    @Bean
+    public HedgedCallExecutor hedgedCallExecutor(ModelRouter modelRouter,
+                                                 @Value("${app.ai.hedging.enabled:false}") boolean enabled,
+                                                 @Value("${app.ai.hedging.percentile:95}") double percentile,
+                                                 @Value("${app.ai.hedging.min-delay-ms:200}") long minDelayMillis,
+                                                 @Value("${app.ai.hedging.min-samples:20}") int minSamples,
+                                                 @Value("${app.ai.hedging.budget-ratio:0.05}") double budgetRatio,
+                                                 @Value("${app.ai.hedging.max-burst:10}") int maxBurst) {
+        return new HedgedCallExecutor(modelRouter, enabled, percentile, minDelayMillis, minSamples, budgetRatio, maxBurst);
+    }
+    
+    // Bulkhead size and deadline per message type: app.ai.resilience.<type>.max-concurrent / .deadline-ms
+    @Bean
+    public ResiliencePolicy resiliencePolicy(Environment environment,
+                                             @Value("${app.ai.resilience.bulkhead.max-wait-ms:100}") long maxWaitMillis) {
+        Map<MessageType, Bulkhead> bulkheads = new EnumMap<>(MessageType.class);
+        Map<MessageType, Duration> deadlines = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            String name = type.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            String prefix = "app.ai.resilience." + name;
+            int maxConcurrent = environment.getProperty(prefix + ".max-concurrent", Integer.class,
+                    type == MessageType.TEXT ? 50 : 10);
+            long deadlineMillis = environment.getProperty(prefix + ".deadline-ms", Long.class,
+                    type == MessageType.PDF_GENERATION ? 60000L : 30000L);
+            bulkheads.put(type, new Bulkhead(name, maxConcurrent, maxWaitMillis));
+            deadlines.put(type, Duration.ofMillis(deadlineMillis));
+        }
+        return new ResiliencePolicy(bulkheads, deadlines);
+    }
+    
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
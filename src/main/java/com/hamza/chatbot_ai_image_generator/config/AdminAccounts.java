@@ -0,0 +1,44 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Grants the ADMIN role, which the {@code /api/admin} endpoints require, to the accounts listed in
+ * {@code app.security.admin-usernames} at startup. Only accounts that already exist are promoted,
+ * so register them before listing them; tokens issued before the promotion keep their old roles.
+ */
+@Component
+public class AdminAccounts {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminAccounts.class);
+    
+    private final UserRepository userRepository;
+    
+    @Value("${app.security.admin-usernames:}")
+    private List<String> adminUsernames;
+    
+    @Autowired
+    public AdminAccounts(UserRepository userRepository) {
+        super();
+        this.userRepository = userRepository;
+    }
+    
+    @PostConstruct
+    public void promote() {
+        List<String> usernames = adminUsernames.stream().map(String::trim).filter(name -> !name.isEmpty()).toList();
+        if (usernames.isEmpty()) {
+            return;
+        }
+        int promoted = userRepository.updateRole(usernames, User.Role.ADMIN);
+        logger.info("Granted the ADMIN role to {} of {} configured admin accounts", promoted, usernames.size());
+    }
+}
@@ -0,0 +1,83 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+    
+    public AsyncConfig() {
+        super();
+    }
+    
+    // Bounded pool for image/PDF generation jobs; a full queue rejects instead of growing
+    @Bean(name = "generationExecutor")
+    public ThreadPoolTaskExecutor generationExecutor(@Value("${app.generation.pool.core-size:4}") int coreSize,
+                                                     @Value("${app.generation.pool.max-size:8}") int maxSize,
+                                                     @Value("${app.generation.pool.queue-capacity:100}") int queueCapacity,
+                                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("generation-");
+        // Still bounded by max-size: virtual threads only make each blocked worker cheaper
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    // Background folding of old conversation turns into the rolling summary
+    @Bean(name = "memoryExecutor")
+    public ThreadPoolTaskExecutor memoryExecutor(@Value("${app.ai.memory.pool.size:2}") int poolSize,
+                                                 @Value("${app.ai.memory.pool.queue-capacity:500}") int queueCapacity,
+                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("memory-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+    
+    // Deleting the files of cleared chat history; one thread is plenty for unlinking files
+    @Bean(name = "fileCleanupExecutor")
+    public ThreadPoolTaskExecutor fileCleanupExecutor(@Value("${app.chat.clear.cleanup-queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("file-cleanup-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    // CPU-bound BCrypt work; platform threads sized to a share of the cores, 0 means half of them
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${app.security.password-hashing.pool-size:0}") int poolSize,
+                                                          @Value("${app.security.password-hashing.queue-capacity:50}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
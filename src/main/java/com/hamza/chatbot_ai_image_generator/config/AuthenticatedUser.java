@@ -0,0 +1,24 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal rebuilt from a self-contained token; it carries no password because it never takes
+ * part in a password check.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    
+    public AuthenticatedUser(Long id, String username, Collection<? extends GrantedAuthority> authorities) {
+        super(username, "", authorities);
+        this.id = id;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,69 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.cache.InMemoryResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.ResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.SemanticResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+    
+    public CacheConfig() {
+        super();
+    }
+    
+    // Declare another ResponseCache bean (e.g. Redis-backed) to replace the in-memory one
+    @Bean
+    @ConditionalOnMissingBean(ResponseCache.class)
+    public ResponseCache responseCache(@Value("${app.ai.cache.max-entries:1000}") int maxEntries,
+                                       @Value("${app.ai.cache.ttl-seconds:3600}") long ttlSeconds) {
+        return new InMemoryResponseCache(maxEntries, Duration.ofSeconds(ttlSeconds));
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "app.ai.semantic-cache.enabled", havingValue = "true")
+    public SemanticResponseCache semanticResponseCache(ObjectProvider<EmbeddingModel> embeddingModels,
+                                                       @Value("${app.ai.semantic-cache.max-entries:5000}") int maxEntries,
+                                                       @Value("${app.ai.semantic-cache.ttl-seconds:3600}") long ttlSeconds,
+                                                       @Value("${app.ai.semantic-cache.threshold.text:0.95}") double textThreshold,
+                                                       @Value("${app.ai.semantic-cache.threshold.image-generation:0.92}") double imageThreshold,
+                                                       @Value("${app.ai.semantic-cache.threshold.pdf-generation:0.95}") double pdfThreshold) {
+        // Both model starters can contribute an EmbeddingModel; prefer a @Primary one, else the first
+        EmbeddingModel embeddingModel = embeddingModels.orderedStream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Semantic cache requires an EmbeddingModel bean"));
+        logger.info("Semantic response cache enabled using {}", embeddingModel.getClass().getSimpleName());
+        
+        Map<MessageType, Double> thresholds = new EnumMap<>(MessageType.class);
+        thresholds.put(MessageType.TEXT, textThreshold);
+        thresholds.put(MessageType.IMAGE_GENERATION, imageThreshold);
+        thresholds.put(MessageType.PDF_GENERATION, pdfThreshold);
+        
+        return new SemanticResponseCache(embeddingModel, thresholds, maxEntries, Duration.ofSeconds(ttlSeconds));
+    }
+    
+    @Bean
+    public UserCache userCache(UserRepository userRepository,
+                               @Value("${app.user-cache.ttl-seconds:60}") long ttlSeconds,
+                               @Value("${app.user-cache.max-entries:10000}") int maxEntries,
+                               @Value("${jwt.expiration}") long tokenLifetimeMillis) {
+        return new UserCache(userRepository, Duration.ofSeconds(ttlSeconds), maxEntries, Duration.ofMillis(tokenLifetimeMillis));
+    }
+}
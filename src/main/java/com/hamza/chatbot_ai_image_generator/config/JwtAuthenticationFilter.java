@@ -1,32 +1,52 @@
 package main.java.com.hamza.chatbot_ai_image_generator.config;
 
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
 import main.java.com.hamza.chatbot_ai_image_generator.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-@Component
+/**
+ * Authenticates requests from their bearer token. With self-contained claims enabled the principal
+ * is rebuilt from the token's user id and roles; otherwise it comes from the short-lived user cache.
+ * Created by {@link SecurityConfig} only, so it runs once, inside the security filter chain.
+ * Token checks are timed as {@code auth.jwt.validation}, tagged by outcome.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserCache userCache;
+    private final boolean selfContainedClaims;
+    private final Timer authenticatedTimer;
+    private final Timer invalidTimer;
+    private final Timer revokedTimer;
+    private final Timer rejectedTimer;
     
-    @Autowired
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserCache userCache, boolean selfContainedClaims,
+                                   MeterRegistry meterRegistry) {
         super();
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.userCache = userCache;
+        this.selfContainedClaims = selfContainedClaims;
+        this.authenticatedTimer = validationTimer(meterRegistry, "authenticated");
+        this.invalidTimer = validationTimer(meterRegistry, "invalid");
+        this.revokedTimer = validationTimer(meterRegistry, "revoked");
+        this.rejectedTimer = validationTimer(meterRegistry, "rejected");
     }
     
     @Override
@@ -44,19 +64,58 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        long start = System.nanoTime();
+        
+        // Parsed once per request; an invalid or expired token leaves the request unauthenticated
+        final Claims claims;
+        try {
+            claims = jwtService.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        username = claims.getSubject();
         
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            
-            if (jwtService.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            Timer outcome = rejectedTimer;
+            if (userCache.isRevoked(username, jwtService.extractIssuedAt(claims))) {
+                outcome = revokedTimer;
+            } else {
+                UserDetails userDetails = selfContainedClaims ? principalFromClaims(claims) : null;
+                if (userDetails == null) {
+                    userDetails = userCache.getUserDetails(username).orElse(null);
+                }
+                
+                if (userDetails != null && jwtService.isTokenValid(claims, userDetails)) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    outcome = authenticatedTimer;
+                }
             }
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
         
         filterChain.doFilter(request, response);
     }
+    
+    // Null for tokens issued without the id and roles claims, which then fall back to the cache
+    private UserDetails principalFromClaims(Claims claims) {
+        Number userId = claims.get(JwtService.USER_ID_CLAIM, Number.class);
+        List<?> roles = claims.get(JwtService.ROLES_CLAIM, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+        return new AuthenticatedUser(userId.longValue(), claims.getSubject(),
+                roles.stream().map(role -> new SimpleGrantedAuthority(role.toString())).toList());
+    }
+    
+    private static Timer validationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt.validation")
+                .description("Bearer token verification and principal lookup")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
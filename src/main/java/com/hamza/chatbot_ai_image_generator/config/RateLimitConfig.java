@@ -0,0 +1,55 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.BucketSpec;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.InMemoryRateLimitStore;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimitStore;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    public RateLimitConfig() {
+        super();
+    }
+    
+    // Declare another RateLimitStore bean (e.g. Redis-backed) to share buckets between nodes
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    public RateLimitStore rateLimitStore() {
+        return new InMemoryRateLimitStore();
+    }
+    
+    // app.rate-limit.<type>.<user|global>.capacity and .refill-per-minute; a capacity of 0 disables that bucket
+    @Bean
+    public RateLimiter rateLimiter(RateLimitStore rateLimitStore, Environment environment) {
+        Map<MessageType, BucketSpec> userLimits = new EnumMap<>(MessageType.class);
+        Map<MessageType, BucketSpec> globalLimits = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            String prefix = "app.rate-limit." + type.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            boolean text = type == MessageType.TEXT;
+            putSpec(userLimits, type, environment, prefix + ".user", text ? 20 : 5, text ? 30 : 10);
+            putSpec(globalLimits, type, environment, prefix + ".global", text ? 200 : 40, text ? 600 : 120);
+        }
+        return new RateLimiter(rateLimitStore, userLimits, globalLimits);
+    }
+    
+    private static void putSpec(Map<MessageType, BucketSpec> limits, MessageType type, Environment environment,
+                                String prefix, long defaultCapacity, double defaultRefillPerMinute) {
+        long capacity = environment.getProperty(prefix + ".capacity", Long.class, defaultCapacity);
+        double refillPerMinute = environment.getProperty(prefix + ".refill-per-minute", Double.class, defaultRefillPerMinute);
+        if (capacity > 0) {
+            limits.put(type, new BucketSpec(capacity, refillPerMinute));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.GlobalExceptionHandler.ErrorResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimitResult;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Throttles the endpoints that trigger model calls, per user and globally, by message type. Runs
+ * right after {@link JwtAuthenticationFilter} so the user is known; unauthenticated requests are
+ * left for the security chain to reject. Sends RateLimit-Limit/Remaining/Reset headers on every
+ * limited request, and 429 with Retry-After once a bucket is empty. Bodies are buffered to read the
+ * message type, so one larger than {@code maxBodyBytes} is refused with 413 before it is read. The
+ * type is bound exactly as the controller will bind it, and a body without a valid one is refused
+ * with 400 rather than passed on uncharged.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/api/chat/message", "/api/chat/stream", "/api/chat/jobs");
+    
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final int maxBodyBytes;
+    
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper, int maxBodyBytes) {
+        super();
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"POST".equals(request.getMethod()) || !LIMITED_PATHS.contains(path);
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        // The type is in the JSON body, so buffer it once and let the controller read the copy
+        byte[] body = readBody(request);
+        if (body == null) {
+            writeError(request, response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body exceeds " + maxBodyBytes + " bytes");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        MessageType type = messageTypeOf(cachedRequest.body);
+        if (type == null) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                    "Request body must be a chat request with a valid messageType");
+            return;
+        }
+        
+        RateLimitResult result = rateLimiter.acquire(authentication.getName(), type);
+        if (result.limit() >= 0) {
+            response.setHeader("RateLimit-Limit", String.valueOf(result.limit()));
+            response.setHeader("RateLimit-Remaining", String.valueOf(result.remaining()));
+            response.setHeader("RateLimit-Reset", String.valueOf(result.resetSeconds()));
+        }
+        if (!result.allowed()) {
+            reject(request, response, type, result);
+            return;
+        }
+        filterChain.doFilter(cachedRequest, response);
+    }
+    
+    // Null once the body is over the cap; a chunked body is read no further than one byte past it
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            return null;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        return body.length > maxBodyBytes ? null : body;
+    }
+    
+    // Bound with the controller's ObjectMapper, so a repeated key resolves to the type that is served
+    private MessageType messageTypeOf(byte[] body) {
+        try {
+            ChatRequest chatRequest = objectMapper.readValue(body, ChatRequest.class);
+            return chatRequest == null || chatRequest.getMessageType() == null
+                    ? null : MessageType.valueOf(chatRequest.getMessageType());
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private void reject(HttpServletRequest request, HttpServletResponse response, MessageType type,
+                        RateLimitResult result) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(result.retryAfterSeconds()));
+        writeError(request, response, HttpStatus.TOO_MANY_REQUESTS,
+                "Rate limit exceeded for " + type.name() + " requests, please retry later");
+    }
+    
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        ErrorResponse error = new ErrorResponse(
+                status.value(),
+                message,
+                "uri=" + request.getRequestURI(),
+                LocalDateTime.now());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+    
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] body;
+        
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+                
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+                
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+                
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+                
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Async reads are not supported on a buffered body");
+                }
+            };
+        }
+        
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+        
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+        
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
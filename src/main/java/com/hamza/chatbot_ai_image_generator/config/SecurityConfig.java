@@ -1,10 +1,20 @@
 package main.java.com.hamza.chatbot_ai_image_generator.config;
 
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimiter;
 import main.java.com.hamza.chatbot_ai_image_generator.service.JwtService;
 import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -12,6 +22,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -31,12 +42,28 @@ public class SecurityConfig {
     
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final ObjectProvider<RateLimiter> rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.jwt.self-contained-claims.enabled:true}")
+    private boolean selfContainedClaims;
+    
+    @Value("${app.rate-limit.max-body-bytes:8192}")
+    private int maxRateLimitedBodyBytes;
     
     @Autowired
-    public SecurityConfig(UserRepository userRepository, JwtService jwtService) {
+    public SecurityConfig(UserRepository userRepository, JwtService jwtService, UserCache userCache,
+                          ObjectProvider<RateLimiter> rateLimiter, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
         super();
         this.userRepository = userRepository;
         this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
     }
     
     @Bean
@@ -45,17 +72,29 @@ public class SecurityConfig {
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authorizeHttpRequests(authz -> authz
+                        // Streaming responses complete on an async dispatch that has already been authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/chat/**").authenticated()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/images/**").permitAll()
                         .requestMatchers("/api/pdfs/**").permitAll()
                         .requestMatchers("/api/uploads/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Metrics name providers, users and traffic; registration is open, so a login is not enough
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                         .requestMatchers("/h2-console/**").permitAll()
                         .requestMatchers("/").permitAll()
                         .requestMatchers("/static/**").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(new JwtAuthenticationFilter(jwtService, userDetailsService()), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, userCache, selfContainedClaims, meterRegistry), UsernamePasswordAuthenticationFilter.class);
+        
+        // Needs the authenticated user, so it runs after the JWT filter
+        RateLimiter limiter = rateLimiter.getIfAvailable();
+        if (limiter != null) {
+            http.addFilterAfter(new RateLimitFilter(limiter, objectMapper, maxRateLimitedBodyBytes), JwtAuthenticationFilter.class);
+        }
         
         // Allow H2 console iframe
         http.headers().frameOptions().disable();
@@ -63,27 +102,41 @@ public class SecurityConfig {
         return http.build();
     }
     
+    // Used for login, so it always reads the current password hash from the database
     @Bean
     public UserDetailsService userDetailsService() {
         return username -> userRepository.findByUsername(username)
-                .map(user -> org.springframework.security.core.userdetails.User.builder()
-                        .username(user.getUsername())
-                        .password(user.getPassword())
-                        .roles("USER")
-                        .build())
+                .map(UserCache::toUserDetails)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
     
+    // Raising the strength upgrades existing hashes as their owners log in
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength,
+                                           @Value("${app.security.password-hashing.timeout-ms:5000}") long timeoutMillis,
+                                           @Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), executor, timeoutMillis);
+    }
+    
+    // Stores the rehashed password after a successful login with an outdated cost factor
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newPassword) -> {
+            User user = userRepository.findByUsername(userDetails.getUsername())
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+            user.setPassword(newPassword);
+            userRepository.save(user);
+            userCache.evict(user.getUsername());
+            return UserCache.toUserDetails(user);
+        };
     }
     
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authProvider;
     }
     
@@ -0,0 +1,193 @@
+package main.java.com.hamza.chatbot_ai_image_generator.controller;
+
+import main.java.com.hamza.chatbot_ai_image_generator.cache.CacheStats;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.ResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.SemanticResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.config.BoundedPasswordEncoder;
+import main.java.com.hamza.chatbot_ai_image_generator.config.VirtualThreadPinningMonitor;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimiter;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.ResiliencePolicy;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.HedgedCallExecutor;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter;
+import main.java.com.hamza.chatbot_ai_image_generator.service.AIService;
+import main.java.com.hamza.chatbot_ai_image_generator.service.ChatMessageWriter;
+import main.java.com.hamza.chatbot_ai_image_generator.service.JwtService;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistograms;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+@Tag(name = "Admin API", description = "Operational statistics and maintenance endpoints")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AdminController {
+
+    private final ResponseCache responseCache;
+    private final ObjectProvider<SemanticResponseCache> semanticResponseCache;
+    private final ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor;
+    private final ModelRouter modelRouter;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final ResiliencePolicy resiliencePolicy;
+    private final AIService aiService;
+    private final JwtService jwtService;
+    private final UserCache userCache;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectProvider<RateLimiter> rateLimiter;
+    private final ChatMessageWriter chatMessageWriter;
+    private final UsageStatistics usageStatistics;
+    private final LatencyHistograms latencyHistograms;
+    
+    @Autowired
+    public AdminController(ResponseCache responseCache,
+                           ObjectProvider<SemanticResponseCache> semanticResponseCache,
+                           ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor,
+                           ModelRouter modelRouter,
+                           HedgedCallExecutor hedgedCallExecutor,
+                           ResiliencePolicy resiliencePolicy,
+                           AIService aiService,
+                           JwtService jwtService,
+                           UserCache userCache,
+                           PasswordEncoder passwordEncoder,
+                           ObjectProvider<RateLimiter> rateLimiter,
+                           ChatMessageWriter chatMessageWriter,
+                           UsageStatistics usageStatistics,
+                           LatencyHistograms latencyHistograms) {
+        super();
+        this.responseCache = responseCache;
+        this.semanticResponseCache = semanticResponseCache;
+        this.pinningMonitor = pinningMonitor;
+        this.modelRouter = modelRouter;
+        this.hedgedCallExecutor = hedgedCallExecutor;
+        this.resiliencePolicy = resiliencePolicy;
+        this.aiService = aiService;
+        this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.passwordEncoder = passwordEncoder;
+        this.rateLimiter = rateLimiter;
+        this.chatMessageWriter = chatMessageWriter;
+        this.usageStatistics = usageStatistics;
+        this.latencyHistograms = latencyHistograms;
+    }
+    
+    @GetMapping("/cache")
+    @Operation(summary = "Response cache statistics", description = "Hit/miss counters and size of the exact-match AI response cache")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+    
+    @DeleteMapping("/cache")
+    @Operation(summary = "Clear response cache", description = "Drop every cached AI response, exact-match and semantic")
+    public ResponseEntity<Map<String, String>> clearCache() {
+        responseCache.clear();
+        semanticResponseCache.ifAvailable(SemanticResponseCache::clear);
+        return ResponseEntity.ok(Map.of("message", "Response cache cleared successfully"));
+    }
+    
+    @GetMapping("/semantic-cache")
+    @Operation(summary = "Semantic cache statistics", description = "Per message type thresholds, hits, misses and hit rate of the semantic response cache")
+    public ResponseEntity<Map<String, Object>> getSemanticCacheStats() {
+        SemanticResponseCache cache = semanticResponseCache.getIfAvailable();
+        if (cache == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        return ResponseEntity.ok(cache.getStats());
+    }
+    
+    @GetMapping("/virtual-threads/pinning")
+    @Operation(summary = "Virtual thread pinning", description = "Pinned virtual thread events grouped by application call site")
+    public ResponseEntity<Map<String, Object>> getPinningStats() {
+        VirtualThreadPinningMonitor monitor = pinningMonitor.getIfAvailable();
+        if (monitor == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        return ResponseEntity.ok(Map.of("enabled", true, "pinned", monitor.getPinnedCounts()));
+    }
+    
+    @GetMapping("/providers")
+    @Operation(summary = "Model provider statistics", description = "Rolling p50/p99 latency, error rate and health of each chat model provider")
+    public ResponseEntity<Map<String, Object>> getProviderStats() {
+        return ResponseEntity.ok(modelRouter.getStats());
+    }
+    
+    @GetMapping("/hedging")
+    @Operation(summary = "Hedging statistics", description = "Hedge-fired, hedge-won and budget counters for hedged AI calls")
+    public ResponseEntity<Map<String, Object>> getHedgingStats() {
+        return ResponseEntity.ok(hedgedCallExecutor.getStats());
+    }
+    
+    @GetMapping("/resilience")
+    @Operation(summary = "Resilience statistics", description = "Bulkhead usage and deadlines per message type, and circuit breaker state per provider")
+    public ResponseEntity<Map<String, Object>> getResilienceStats() {
+        Map<String, Object> breakers = new LinkedHashMap<>();
+        modelRouter.getProviders().forEach(provider ->
+                breakers.put(provider.getName(), provider.getCircuitBreaker().getStats()));
+        return ResponseEntity.ok(Map.of("bulkheads", resiliencePolicy.getStats(), "circuitBreakers", breakers));
+    }
+    
+    @GetMapping("/coalescing")
+    @Operation(summary = "Request coalescing statistics", description = "Model calls issued versus identical in-flight prompts that shared an existing call")
+    public ResponseEntity<Map<String, Object>> getCoalescingStats() {
+        return ResponseEntity.ok(aiService.getCoalescingStats());
+    }
+    
+    @GetMapping("/jwt-cache")
+    @Operation(summary = "Verified token cache statistics", description = "Size and hit rate of the cache of already verified JWTs")
+    public ResponseEntity<Map<String, Object>> getJwtCacheStats() {
+        return ResponseEntity.ok(jwtService.getTokenCacheStats());
+    }
+    
+    @GetMapping("/user-cache")
+    @Operation(summary = "User cache statistics", description = "Size, hit rate and active token revocations of the user cache")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats() {
+        return ResponseEntity.ok(userCache.getStats());
+    }
+    
+    @GetMapping("/password-hashing")
+    @Operation(summary = "Password hashing pool statistics", description = "Active, queued, rejected and timed-out BCrypt operations")
+    public ResponseEntity<Map<String, Object>> getPasswordHashingStats() {
+        if (passwordEncoder instanceof BoundedPasswordEncoder bounded) {
+            return ResponseEntity.ok(bounded.getStats());
+        }
+        return ResponseEntity.ok(Map.of("bounded", false));
+    }
+    
+    @GetMapping("/rate-limits")
+    @Operation(summary = "Rate limit statistics", description = "Configured buckets and allowed, per-user rejected and globally rejected requests per message type")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        RateLimiter limiter = rateLimiter.getIfAvailable();
+        if (limiter == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        return ResponseEntity.ok(limiter.getStats());
+    }
+    
+    @GetMapping("/persistence")
+    @Operation(summary = "Chat message persistence statistics", description = "Write-behind queue depth, batches, mean batch size, failures, rejections and spooled messages")
+    public ResponseEntity<Map<String, Object>> getPersistenceStats() {
+        return ResponseEntity.ok(chatMessageWriter.getStats());
+    }
+    
+    @GetMapping("/stats")
+    @Operation(summary = "Usage statistics", description = "Messages and average response time per type, users, and hourly rollups, served from in-memory counters")
+    public ResponseEntity<Map<String, Object>> getUsageStats() {
+        return ResponseEntity.ok(usageStatistics.getStats());
+    }
+    
+    @GetMapping("/latency")
+    @Operation(summary = "Latency percentiles", description = "Sliding-window p50/p90/p99/p999 latency per message type and per model provider")
+    public ResponseEntity<Map<String, Object>> getLatencyStats() {
+        return ResponseEntity.ok(latencyHistograms.getStats());
+    }
+}
@@ -1,8 +1,14 @@
 package main.java.com.hamza.chatbot_ai_image_generator.controller;
 
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.AuthDTOs.ChangePasswordRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.AuthDTOs.LoginRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.AuthDTOs.RegisterRequest;
 import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.TooManyRequestsException;
 import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
 import main.java.com.hamza.chatbot_ai_image_generator.service.JwtService;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -26,17 +32,23 @@ public class AuthController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final UsageStatistics usageStatistics;
     
     @Autowired
     public AuthController(AuthenticationManager authenticationManager,
                        UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
-                       JwtService jwtService) {
+                       JwtService jwtService,
+                       UserCache userCache,
+                       UsageStatistics usageStatistics) {
         super();
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.usageStatistics = usageStatistics;
     }
     
     @PostMapping("/register")
@@ -60,15 +72,18 @@ public class AuthController {
             user.setPassword(passwordEncoder.encode(request.getPassword()));
             
             userRepository.save(user);
+            usageStatistics.recordUserRegistered();
             
             // Generate JWT token
-            String token = jwtService.generateToken(user.getUsername());
+            String token = generateToken(user);
             
             return ResponseEntity.ok(Map.of(
                     "token", token,
                     "message", "User registered successfully"
             ));
             
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(Map.of("error", "Registration failed: " + e.getMessage()));
@@ -84,13 +99,19 @@ public class AuthController {
             
             SecurityContextHolder.getContext().setAuthentication(authentication);
             
-            String token = jwtService.generateToken(request.getUsername());
+            // Also warms the user cache for the requests that follow
+            User user = userCache.getUser(authentication.getName())
+                    .orElseThrow(() -> new IllegalStateException("User not found"));
+            String token = generateToken(user);
             
             return ResponseEntity.ok(Map.of(
                     "token", token,
                     "message", "Login successful"
             ));
             
+        } catch (TooManyRequestsException e) {
+            // Hashing pool saturated: tell the client to back off rather than reporting bad credentials
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "Invalid credentials"));
@@ -104,7 +125,7 @@ public class AuthController {
         }
         
         String username = authentication.getName();
-        Optional<User> userOpt = userRepository.findByUsername(username);
+        Optional<User> userOpt = userCache.getUser(username);
         
         if (userOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -120,6 +141,42 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/change-password")
+    public ResponseEntity<Map<String, String>> changePassword(@Valid @RequestBody ChangePasswordRequest request,
+                                                              Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        // Read fresh rather than from the cache, since the stored hash is what gets checked
+        Optional<User> userOpt = userRepository.findByUsername(authentication.getName());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        User user = userOpt.get();
+        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Current password is incorrect"));
+        }
+        
+        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        userRepository.save(user);
+        
+        // Drops the cached user and rejects tokens issued before the change
+        userCache.invalidate(user.getUsername());
+        
+        return ResponseEntity.ok(Map.of(
+                "token", generateToken(user),
+                "message", "Password changed successfully"
+        ));
+    }
+    
+    private String generateToken(User user) {
+        return jwtService.generateToken(user.getId(), user.getUsername(),
+                UserCache.toUserDetails(user).getAuthorities());
+    }
+    
         // // DTO classes
         // public static class RegisterRequest {
         //     private String username;
@@ -1,22 +1,27 @@
 package main.java.com.hamza.chatbot_ai_image_generator.controller;
 
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatHistoryResponse;
 import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
 import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.GenerationJobResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
 import main.java.com.hamza.chatbot_ai_image_generator.service.ChatService;
+import main.java.com.hamza.chatbot_ai_image_generator.service.GenerationJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -32,11 +37,13 @@ public class ChatController {
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
     
     private final ChatService chatService;
+    private final GenerationJobService generationJobService;
     
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, GenerationJobService generationJobService) {
         super();
         this.chatService = chatService;
+        this.generationJobService = generationJobService;
     }
     
     // public ResponseEntity<Map<String, Object>> sendMessage(@RequestBody Map<String, String> request,
@@ -110,80 +117,119 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream a chat message", description = "Relay AI response tokens as server-sent events while they are generated")
+    public SseEmitter streamMessage(
+            @Valid @RequestBody ChatRequest request,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        logger.info("Received streaming message from user: {}", userDetails.getUsername());
+        
+        return chatService.streamMessage(request, userDetails.getUsername());
+    }
+    
+    @PostMapping("/jobs")
+    @Operation(summary = "Submit a generation job", description = "Queue an image or PDF generation and return the job id immediately")
+    public ResponseEntity<GenerationJobResponse> submitJob(
+            @Valid @RequestBody ChatRequest request,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        GenerationJobResponse job = generationJobService.submit(request, userDetails.getUsername());
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get generation job status", description = "Poll the status and, once completed, the result of a generation job")
+    public ResponseEntity<GenerationJobResponse> getJob(
+            @PathVariable String jobId,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        return ResponseEntity.ok(generationJobService.getJob(jobId, userDetails.getUsername()));
+    }
+    
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to job completion", description = "Server-sent event emitted once the generation job completes or fails")
+    public SseEmitter subscribeToJob(
+            @PathVariable String jobId,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        return generationJobService.subscribe(jobId, userDetails.getUsername());
+    }
+    
     @GetMapping("/history")
-    public ResponseEntity<Map<String, Object>> getChatHistory(@AuthenticationPrincipal UserDetails userDetails,
-                                                           @RequestParam(defaultValue = "0") int page,
-                                                           @RequestParam(defaultValue = "20") int size) {
-        try {
-            User user = userRepository.findByUsername(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            Pageable pageable = PageRequest.of(page, size);
-            Page<ChatMessage> messages = chatMessageRepository.findByUserOrderByCreatedAtDesc(user, pageable);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("messages", messages.getContent());
-            response.put("currentPage", messages.getNumber());
-            response.put("totalItems", messages.getTotalElements());
-            response.put("totalPages", messages.getTotalPages());
-            response.put("hasNext", messages.hasNext());
-            response.put("hasPrevious", messages.hasPrevious());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", "Failed to fetch chat history: " + e.getMessage()));
+    @Operation(summary = "Get chat history", description = "Newest messages first, as {messages, nextCursor, hasNext}; "
+            + "pass the returned nextCursor as cursor to fetch older ones. AI responses are previews unless preview=false. "
+            + "Replaces the offset-paged {messages, currentPage, totalItems, totalPages, hasNext, hasPrevious} response: "
+            + "a request that still sends page is rejected with 400")
+    public ResponseEntity<ChatHistoryResponse> getChatHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Return a truncated snippet of each AI response instead of the full text")
+            @RequestParam(defaultValue = "true") boolean preview,
+            @Parameter(hidden = true) @RequestParam(required = false) Integer page,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        // An offset-paging client would otherwise be served the first page over and over
+        if (page != null) {
+            throw new BusinessException("The page parameter is no longer supported; pass the nextCursor of the previous response as cursor");
         }
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        return ResponseEntity.ok(chatService.getChatHistory(userDetails.getUsername(), cursor, size, preview));
+    }
+    
+    @GetMapping("/messages/{messageId}")
+    @Operation(summary = "Get a chat message", description = "Full AI response of one of the user's messages, e.g. to expand a history preview")
+    public ResponseEntity<ChatResponse> getMessage(
+            @PathVariable Long messageId,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        return ResponseEntity.ok(chatService.getMessage(userDetails.getUsername(), messageId));
     }
     
     @GetMapping("/recent")
-    public ResponseEntity<List<ChatMessage>> getRecentMessages(@AuthenticationPrincipal UserDetails userDetails,
-                                                          @RequestParam(defaultValue = "10") int limit) {
-        try {
-            User user = userRepository.findByUsername(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            Pageable pageable = PageRequest.of(0, limit);
-            List<ChatMessage> messages = chatMessageRepository.findRecentMessagesByUserId(user.getId(), pageable);
-            
-            return ResponseEntity.ok(messages);
-            
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    @Operation(summary = "Get recent messages", description = "Latest messages with a preview of each AI response")
+    public ResponseEntity<List<ChatResponse>> getRecentMessages(
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(hidden = true) Authentication authentication) {
+        
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        
+        return ResponseEntity.ok(chatService.getRecentMessages(userDetails.getUsername(), limit));
     }
     
-     @DeleteMapping("/clear-old")
-    @Operation(summary = "Clear chat history", description = "Delete all chat messages for the authenticated user")
-  
-        public ResponseEntity<Map<String, String>> clearChatHistory(@AuthenticationPrincipal UserDetails userDetails) {
-        try {
-            User user = userRepository.findByUsername(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            List<ChatMessage> messages = chatMessageRepository.findByUserOrderByCreatedAtDesc(user);
-            chatMessageRepository.deleteAll(messages);
-            
-            return ResponseEntity.ok(Map.of("message", "Chat history cleared successfully"));
-            
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", "Failed to clear chat history: " + e.getMessage()));
-        }
+    @DeleteMapping("/clear-old")
+    @Operation(summary = "Clear chat history (deprecated)", description = "Alias of DELETE /api/chat/clear")
+    @Deprecated
+    public ResponseEntity<Map<String, Object>> clearOldChatHistory(
+            @Parameter(hidden = true) Authentication authentication) {
+        return clearChatHistory(authentication);
     }
 
     @DeleteMapping("/clear")
     @Operation(summary = "Clear chat history", description = "Delete all chat messages for the authenticated user")
-    public ResponseEntity<Map<String, String>> clearChatHistory(
+    public ResponseEntity<Map<String, Object>> clearChatHistory(
             @Parameter(hidden = true) Authentication authentication) {
         
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         
-        chatService.clearChatHistory(userDetails.getUsername());
+        int deleted = chatService.clearChatHistory(userDetails.getUsername());
         
-        Map<String, String> response = new HashMap<>();
+        Map<String, Object> response = new HashMap<>();
         response.put("message", "Chat history cleared successfully");
+        response.put("deleted", deleted);
         
         return ResponseEntity.ok(response);
     }
@@ -2,6 +2,9 @@ package main.java.com.hamza.chatbot_ai_image_generator.controller;
 
 import main.java.com.hamza.chatbot_ai_image_generator.service.ImageGenerationService;
 import main.java.com.hamza.chatbot_ai_image_generator.service.PDFGenerationService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api")
@@ -20,58 +24,43 @@ public class FileController {
     
     private final ImageGenerationService imageGenerationService;
     private final PDFGenerationService pdfGenerationService;
+    private final MeterRegistry meterRegistry;
     
     @Autowired
     public FileController(ImageGenerationService imageGenerationService,
-                       PDFGenerationService pdfGenerationService) {
+                       PDFGenerationService pdfGenerationService,
+                       MeterRegistry meterRegistry) {
                 super();
         this.imageGenerationService = imageGenerationService;
         this.pdfGenerationService = pdfGenerationService;
+        this.meterRegistry = meterRegistry;
     }
     
     @GetMapping("/images/{fileName}")
     public ResponseEntity<Resource> getImage(@PathVariable String fileName) {
-        try {
-            byte[] imageBytes = imageGenerationService.getImageFile(fileName);
-            ByteArrayResource resource = new ByteArrayResource(imageBytes);
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
-        }
+        return serve("image", fileName, MediaType.IMAGE_JPEG, imageGenerationService::getImageFile);
     }
     
     @GetMapping("/pdfs/{fileName}")
     public ResponseEntity<Resource> getPDF(@PathVariable String fileName) {
-        try {
-            byte[] pdfBytes = pdfGenerationService.getPDFFIle(fileName);
-            ByteArrayResource resource = new ByteArrayResource(pdfBytes);
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
-        }
+        return serve("pdf", fileName, MediaType.APPLICATION_PDF, pdfGenerationService::getPDFFIle);
     }
     
     @PostMapping("/upload")
     public ResponseEntity<Map<String, String>> uploadImage(@RequestParam("file") MultipartFile file) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             if (file.isEmpty()) {
+                sample.stop(fileTimer("files.uploaded", "image", "empty"));
                 return ResponseEntity.badRequest().body(Map.of("error", "Please select a file to upload"));
             }
             
             String imageUrl = imageGenerationService.uploadImage(file);
+            sample.stop(fileTimer("files.uploaded", "image", "ok"));
             return ResponseEntity.ok(Map.of("url", imageUrl));
             
         } catch (Exception e) {
+            sample.stop(fileTimer("files.uploaded", "image", "error"));
             return ResponseEntity.internalServerError()
                     .body(Map.of("error", "Failed to upload file: " + e.getMessage()));
         }
@@ -79,17 +68,38 @@ public class FileController {
     
     @GetMapping("/uploads/{fileName}")
     public ResponseEntity<Resource> getUploadedImage(@PathVariable String fileName) {
+        return serve("upload", fileName, MediaType.IMAGE_JPEG, imageGenerationService::getImageFile);
+    }
+    
+    // kind is one of a fixed set; file names never become tags
+    private ResponseEntity<Resource> serve(String kind, String fileName, MediaType mediaType,
+                                           Function<String, byte[]> reader) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            byte[] imageBytes = imageGenerationService.getImageFile(fileName);
-            ByteArrayResource resource = new ByteArrayResource(imageBytes);
+            byte[] bytes = reader.apply(fileName);
+            ByteArrayResource resource = new ByteArrayResource(bytes);
+            sample.stop(fileTimer("files.served", kind, "ok"));
+            DistributionSummary.builder("files.served.size")
+                    .baseUnit("bytes")
+                    .tag("kind", kind)
+                    .register(meterRegistry)
+                    .record(bytes.length);
             
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .contentType(MediaType.IMAGE_JPEG)
+                    .contentType(mediaType)
                     .body(resource);
                     
         } catch (Exception e) {
+            sample.stop(fileTimer("files.served", kind, "not_found"));
             return ResponseEntity.notFound().build();
         }
     }
+    
+    private Timer fileTimer(String name, String kind, String outcome) {
+        return Timer.builder(name)
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -62,6 +62,27 @@ public class AuthDTOs {
         public void setPassword(String password) { this.password = password; }
     }
     
+    public static class ChangePasswordRequest {
+        
+        public ChangePasswordRequest() {
+            super();
+        }
+        
+        @NotBlank(message = "Current password cannot be blank")
+        private String currentPassword;
+        
+        @NotBlank(message = "New password cannot be blank")
+        @Size(min = 6, max = 100, message = "Password must be between 6 and 100 characters")
+        private String newPassword;
+        
+        // Getters and setters
+        public String getCurrentPassword() { return currentPassword; }
+        public void setCurrentPassword(String currentPassword) { this.currentPassword = currentPassword; }
+        
+        public String getNewPassword() { return newPassword; }
+        public void setNewPassword(String newPassword) { this.newPassword = newPassword; }
+    }
+    
     public static class AuthResponse {
         
         private String token;
@@ -0,0 +1,35 @@
+package main.java.com.hamza.chatbot_ai_image_generator.dto;
+
+import java.util.List;
+
+/**
+ * One page of chat history, newest first. {@code nextCursor} is null on the last page. Replaced the
+ * offset-paged map with currentPage, totalItems and totalPages, which needed a COUNT per page.
+ */
+public class ChatHistoryResponse {
+    
+    private List<ChatResponse> messages;
+    private String nextCursor;
+    private boolean hasNext;
+    
+    public ChatHistoryResponse() {
+        super();
+    }
+    
+    public ChatHistoryResponse(List<ChatResponse> messages, String nextCursor, boolean hasNext) {
+        super();
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+    
+    // Getters and setters
+    public List<ChatResponse> getMessages() { return messages; }
+    public void setMessages(List<ChatResponse> messages) { this.messages = messages; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
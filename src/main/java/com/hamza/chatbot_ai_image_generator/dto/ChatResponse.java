@@ -12,6 +12,8 @@ public class ChatResponse {
     private String pdfUrl;
     private LocalDateTime timestamp;
     private Long responseTime;
+    private Long timeToFirstToken;
+    private Boolean responseTruncated; // set on previews only; fetch the message by id for the full response
     
     public ChatResponse() {
         super();
@@ -54,4 +56,10 @@ public class ChatResponse {
     
     public Long getResponseTime() { return responseTime; }
     public void setResponseTime(Long responseTime) { this.responseTime = responseTime; }
+    
+    public Long getTimeToFirstToken() { return timeToFirstToken; }
+    public void setTimeToFirstToken(Long timeToFirstToken) { this.timeToFirstToken = timeToFirstToken; }
+    
+    public Boolean getResponseTruncated() { return responseTruncated; }
+    public void setResponseTruncated(Boolean responseTruncated) { this.responseTruncated = responseTruncated; }
 }
@@ -0,0 +1,52 @@
+package main.java.com.hamza.chatbot_ai_image_generator.dto;
+
+import java.time.LocalDateTime;
+
+public class GenerationJobResponse {
+    
+    private String jobId;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String messageType;
+    private ChatResponse result;
+    private String error;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    
+    public GenerationJobResponse() {
+        super();
+    }
+    
+    public GenerationJobResponse(String jobId, String status, String messageType, ChatResponse result,
+                                 String error, LocalDateTime submittedAt, LocalDateTime completedAt) {
+        super();
+        this.jobId = jobId;
+        this.status = status;
+        this.messageType = messageType;
+        this.result = result;
+        this.error = error;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+    }
+    
+    // Getters and setters
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getMessageType() { return messageType; }
+    public void setMessageType(String messageType) { this.messageType = messageType; }
+    
+    public ChatResponse getResult() { return result; }
+    public void setResult(ChatResponse result) { this.result = result; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
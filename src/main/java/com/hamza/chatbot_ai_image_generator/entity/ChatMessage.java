@@ -6,11 +6,15 @@ import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_user_created_id", columnList = "user_id, created_at, id")
+})
 public class ChatMessage {
     
+    // Pooled sequence: ids are handed out 50 per round trip, and unlike IDENTITY inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -41,17 +45,25 @@ public class ChatMessage {
     @Column(name = "response_time_ms")
     private Long responseTimeMs;
     
-    // public enum MessageType {
-    //     TEXT, IMAGE_GENERATION, PDF_GENERATION
-    // }
+    @Column(name = "time_to_first_token_ms")
+    private Long timeToFirstTokenMs;
     
+    public enum MessageType {
+        TEXT, IMAGE_GENERATION, PDF_GENERATION
+    }
+    
+    // Keeps a timestamp set by the caller, which the history cursor relies on
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
     
     // Constructors
-    // public ChatMessage() {}
+    public ChatMessage() {
+        super();
+    }
     
     public ChatMessage(User user, String messageContent, MessageType messageType) {
         super();
@@ -133,4 +145,12 @@ public class ChatMessage {
     public void setResponseTimeMs(Long responseTimeMs) {
         this.responseTimeMs = responseTimeMs;
     }
+    
+    public Long getTimeToFirstTokenMs() {
+        return timeToFirstTokenMs;
+    }
+    
+    public void setTimeToFirstTokenMs(Long timeToFirstTokenMs) {
+        this.timeToFirstTokenMs = timeToFirstTokenMs;
+    }
 }
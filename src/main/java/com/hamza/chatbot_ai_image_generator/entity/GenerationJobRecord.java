@@ -0,0 +1,90 @@
+package main.java.com.hamza.chatbot_ai_image_generator.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted state of an asynchronous generation job, so its status can still be polled after the
+ * in-memory job is gone (purged or lost on restart). The result itself is the chat message the job
+ * saved, referenced by id.
+ */
+@Entity
+@Table(name = "generation_jobs", indexes = {
+        @Index(name = "idx_generation_jobs_status", columnList = "status")
+})
+public class GenerationJobRecord {
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(nullable = false, length = 50)
+    private String username;
+    
+    @Column(name = "message_type", nullable = false, length = 20)
+    private String messageType;
+    
+    @Column(nullable = false, length = 20)
+    private String status;
+    
+    @Column(name = "chat_message_id")
+    private Long chatMessageId;
+    
+    @Column(length = 1000)
+    private String error;
+    
+    @Column(name = "submitted_at", nullable = false)
+    private LocalDateTime submittedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    public GenerationJobRecord() {
+        super();
+    }
+    
+    public GenerationJobRecord(String id, String username, String messageType, String status, Long chatMessageId,
+                               String error, LocalDateTime submittedAt, LocalDateTime completedAt) {
+        super();
+        this.id = id;
+        this.username = username;
+        this.messageType = messageType;
+        this.status = status;
+        this.chatMessageId = chatMessageId;
+        this.error = error;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getMessageType() {
+        return messageType;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public Long getChatMessageId() {
+        return chatMessageId;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -30,6 +30,10 @@ public class User {
     @Column(nullable = false)
     private String password;
     
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Role role = Role.USER;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -39,6 +43,10 @@ public class User {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ChatMessage> chatMessages;
     
+    public enum Role {
+        USER, ADMIN
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -51,7 +59,9 @@ public class User {
     }
     
     // Constructors
-    // public User() {}
+    public User() {
+        super();
+    }
     
     public User(String username, String email, String password) {
         super();
@@ -93,6 +103,14 @@ public class User {
         this.password = password;
     }
     
+    public Role getRole() {
+        return role;
+    }
+    
+    public void setRole(Role role) {
+        this.role = role;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,8 @@
+package main.java.com.hamza.chatbot_ai_image_generator.exception;
+
+public class AITimeoutException extends AIUnavailableException {
+    
+    public AITimeoutException(String message) {
+        super(message, 1);
+    }
+}
@@ -0,0 +1,24 @@
+package main.java.com.hamza.chatbot_ai_image_generator.exception;
+
+/**
+ * Raised instead of calling a model when a circuit breaker is open or a bulkhead is full,
+ * so callers fail fast with 503 rather than queueing behind a struggling provider.
+ */
+public class AIUnavailableException extends RuntimeException {
+    
+    private final long retryAfterSeconds;
+    
+    public AIUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public AIUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,87 @@
+package main.java.com.hamza.chatbot_ai_image_generator.prompt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt template parsed once into literal segments and {@code {variable}} slots, so rendering is
+ * a single pass into a pre-sized builder instead of re-parsing the template on every call.
+ */
+public final class CompiledPromptTemplate {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{([A-Za-z_][A-Za-z0-9_]*)}");
+    
+    private final String name;
+    private final String version;
+    private final String source;
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalLength;
+    
+    private CompiledPromptTemplate(String name, String version, String source, String[] literals, String[] variables) {
+        super();
+        this.name = name;
+        this.version = version;
+        this.source = source;
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    public static CompiledPromptTemplate compile(String name, String version, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = VARIABLE.matcher(source);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(last, matcher.start()));
+            variables.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(source.substring(last));
+        return new CompiledPromptTemplate(name, version, source,
+                literals.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+    
+    public String render(Map<String, ?> values) {
+        String[] rendered = new String[variables.length];
+        int length = literalLength;
+        for (int i = 0; i < variables.length; i++) {
+            Object value = values.get(variables[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for '" + variables[i] + "' in prompt template " + name + "." + version);
+            }
+            rendered[i] = value.toString();
+            length += rendered[i].length();
+        }
+        
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(literals[i]).append(rendered[i]);
+        }
+        return builder.append(literals[variables.length]).toString();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public List<String> getVariables() {
+        return List.of(variables);
+    }
+}
@@ -0,0 +1,75 @@
+package main.java.com.hamza.chatbot_ai_image_generator.prompt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads and compiles every prompt template once at startup from {@code <location><name>.<version>.st}.
+ * The location defaults to {@code classpath:prompts/} and may point at the file system; the version
+ * of each template is selected with {@code app.ai.prompts.<name>.version}.
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    public static final String TEXT = "text";
+    public static final String SUMMARY = "summary";
+    public static final String IMAGE_GENERATION = "image-generation";
+    public static final String PDF_GENERATION = "pdf-generation";
+    
+    private static final String[] TEMPLATE_NAMES = {TEXT, SUMMARY, IMAGE_GENERATION, PDF_GENERATION};
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+    
+    private final Map<String, CompiledPromptTemplate> templates = new HashMap<>();
+    
+    @Autowired
+    public PromptTemplateRegistry(ResourceLoader resourceLoader,
+                                  Environment environment,
+                                  @Value("${app.ai.prompts.location:classpath:prompts/}") String location) {
+        super();
+        for (String name : TEMPLATE_NAMES) {
+            String version = environment.getProperty("app.ai.prompts." + name + ".version", "v1");
+            Resource resource = resourceLoader.getResource(location + name + "." + version + ".st");
+            if (!resource.exists()) {
+                throw new IllegalStateException("Prompt template not found: " + resource.getDescription());
+            }
+            CompiledPromptTemplate template = CompiledPromptTemplate.compile(name, version, read(resource));
+            templates.put(name, template);
+            logger.info("Loaded prompt template {}.{} with variables {}", name, version, template.getVariables());
+        }
+    }
+    
+    public CompiledPromptTemplate get(String name) {
+        CompiledPromptTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown prompt template: " + name);
+        }
+        return template;
+    }
+    
+    public Prompt render(String name, Map<String, ?> values) {
+        return new Prompt(get(name).render(values));
+    }
+    
+    private static String read(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read prompt template " + resource.getDescription(), e);
+        }
+    }
+}
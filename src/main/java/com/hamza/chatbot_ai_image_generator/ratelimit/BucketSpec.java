@@ -0,0 +1,18 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+/**
+ * Shape of a token bucket: at most {@code capacity} requests in a burst, refilled continuously at
+ * {@code refillPerMinute}.
+ */
+public record BucketSpec(long capacity, double refillPerMinute) {
+
+    public BucketSpec {
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Bucket capacity and refill rate must be positive");
+        }
+    }
+    
+    double refillPerNano() {
+        return refillPerMinute / 60_000_000_000.0;
+    }
+}
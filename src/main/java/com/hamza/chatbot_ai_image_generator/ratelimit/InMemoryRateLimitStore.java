@@ -0,0 +1,49 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    
+    public InMemoryRateLimitStore() {
+        this(System::nanoTime);
+    }
+    
+    public InMemoryRateLimitStore(LongSupplier clock) {
+        super();
+        this.clock = clock;
+    }
+    
+    @Override
+    public RateLimitResult tryConsume(String key, BucketSpec spec, long permits) {
+        long now = clock.getAsLong();
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(spec, now)).tryConsume(permits, now);
+    }
+    
+    @Override
+    public void refund(String key, BucketSpec spec, long permits) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.refund(permits, clock.getAsLong());
+        }
+    }
+    
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+    
+    // Idle users' buckets refill to full and are dropped, so memory follows active users only.
+    // A request racing the removal may consume from the dropped bucket: at worst one extra token.
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictFullBuckets() {
+        long now = clock.getAsLong();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+}
@@ -0,0 +1,22 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+/**
+ * Outcome of taking a token: whether it was granted, the tokens left, and how long until the
+ * bucket is full again ({@code resetNanos}) or, when rejected, until a token is available.
+ */
+public record RateLimitResult(boolean allowed, long limit, long remaining, long resetNanos, long retryAfterNanos) {
+
+    public static final RateLimitResult UNLIMITED = new RateLimitResult(true, -1, -1, 0, 0);
+    
+    public long resetSeconds() {
+        return ceilSeconds(resetNanos);
+    }
+    
+    public long retryAfterSeconds() {
+        return Math.max(1, ceilSeconds(retryAfterNanos));
+    }
+    
+    private static long ceilSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
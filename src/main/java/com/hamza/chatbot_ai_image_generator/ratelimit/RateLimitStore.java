@@ -0,0 +1,14 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+/**
+ * Where bucket state lives. The in-memory store limits each node on its own; declare another
+ * RateLimitStore bean (e.g. Redis-backed) to share buckets across nodes.
+ */
+public interface RateLimitStore {
+
+    RateLimitResult tryConsume(String key, BucketSpec spec, long permits);
+    
+    void refund(String key, BucketSpec spec, long permits);
+    
+    int size();
+}
@@ -0,0 +1,115 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Applies a per-user and a global token bucket for each message type. A request must get a token
+ * from both; the per-user bucket is checked first so one heavy user is throttled before they can
+ * drain the shared quota. The outcome counters are bound as Micrometer counters tagged by type
+ * (and, for rejections, by the bucket that refused), read from the same adders on scrape.
+ */
+public class RateLimiter implements MeterBinder {
+
+    private final RateLimitStore store;
+    private final Map<MessageType, BucketSpec> userLimits;
+    private final Map<MessageType, BucketSpec> globalLimits;
+    private final Map<MessageType, Counters> counters = new EnumMap<>(MessageType.class);
+    
+    public RateLimiter(RateLimitStore store, Map<MessageType, BucketSpec> userLimits, Map<MessageType, BucketSpec> globalLimits) {
+        super();
+        this.store = store;
+        this.userLimits = userLimits;
+        this.globalLimits = globalLimits;
+        for (MessageType type : MessageType.values()) {
+            counters.put(type, new Counters());
+        }
+    }
+    
+    public RateLimitResult acquire(String username, MessageType type) {
+        Counters counter = counters.get(type);
+        BucketSpec userSpec = userLimits.get(type);
+        BucketSpec globalSpec = globalLimits.get(type);
+        String userKey = "user:" + type.name() + ":" + username;
+        
+        RateLimitResult userResult = RateLimitResult.UNLIMITED;
+        if (userSpec != null) {
+            userResult = store.tryConsume(userKey, userSpec, 1);
+            if (!userResult.allowed()) {
+                counter.userRejected.increment();
+                return userResult;
+            }
+        }
+        
+        if (globalSpec != null) {
+            RateLimitResult globalResult = store.tryConsume("global:" + type.name(), globalSpec, 1);
+            if (!globalResult.allowed()) {
+                if (userSpec != null) {
+                    store.refund(userKey, userSpec, 1);
+                }
+                counter.globalRejected.increment();
+                return globalResult;
+            }
+            if (userSpec == null) {
+                userResult = globalResult;
+            }
+        }
+        
+        counter.allowed.increment();
+        return userResult;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        counters.forEach((type, counter) -> {
+            Map<String, Object> typeStats = new LinkedHashMap<>();
+            typeStats.put("userLimit", userLimits.get(type));
+            typeStats.put("globalLimit", globalLimits.get(type));
+            typeStats.put("allowed", counter.allowed.sum());
+            typeStats.put("userRejected", counter.userRejected.sum());
+            typeStats.put("globalRejected", counter.globalRejected.sum());
+            stats.put(type.name(), typeStats);
+        });
+        stats.put("trackedBuckets", store.size());
+        return stats;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counters.forEach((type, counter) -> {
+            bindCounter(registry, "rate.limit.allowed", type, null, counter, c -> c.allowed.sum());
+            bindCounter(registry, "rate.limit.rejected", type, "user", counter, c -> c.userRejected.sum());
+            bindCounter(registry, "rate.limit.rejected", type, "global", counter, c -> c.globalRejected.sum());
+        });
+        Gauge.builder("rate.limit.buckets", store, RateLimitStore::size)
+                .description("Token buckets currently tracked")
+                .register(registry);
+    }
+    
+    private static void bindCounter(MeterRegistry registry, String name, MessageType type, String scope,
+                                    Counters counter, ToDoubleFunction<Counters> count) {
+        FunctionCounter.Builder<Counters> builder = FunctionCounter.builder(name, counter, count)
+                .description("Requests the rate limiter let through or refused")
+                .baseUnit("requests")
+                .tag("type", type.name());
+        if (scope != null) {
+            builder.tag("scope", scope);
+        }
+        builder.register(registry);
+    }
+    
+    private static final class Counters {
+        final LongAdder allowed = new LongAdder();
+        final LongAdder userRejected = new LongAdder();
+        final LongAdder globalRejected = new LongAdder();
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The token count and the time it was last refilled are swapped together
+ * with a compare-and-set, so concurrent requests never block each other and never over-grant.
+ */
+public class TokenBucket {
+
+    private final BucketSpec spec;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+    
+    public TokenBucket(BucketSpec spec, long nowNanos) {
+        super();
+        this.spec = spec;
+        this.refillPerNano = spec.refillPerNano();
+        this.state = new AtomicReference<>(new State(spec.capacity(), nowNanos));
+    }
+    
+    public RateLimitResult tryConsume(long permits, long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = tokensAt(current, nowNanos);
+            if (tokens < permits) {
+                long retryAfter = (long) Math.ceil((permits - tokens) / refillPerNano);
+                return new RateLimitResult(false, spec.capacity(), (long) tokens, nanosUntilFull(tokens), retryAfter);
+            }
+            double left = tokens - permits;
+            if (state.compareAndSet(current, new State(left, Math.max(nowNanos, current.refilledAt())))) {
+                return new RateLimitResult(true, spec.capacity(), (long) left, nanosUntilFull(left), 0);
+            }
+        }
+    }
+    
+    // Gives back tokens taken for a request that was rejected by another limit
+    public void refund(long permits, long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = Math.min(spec.capacity(), tokensAt(current, nowNanos) + permits);
+            if (state.compareAndSet(current, new State(tokens, Math.max(nowNanos, current.refilledAt())))) {
+                return;
+            }
+        }
+    }
+    
+    // A full bucket behaves exactly like a missing one, so it can be dropped from the store
+    public boolean isFull(long nowNanos) {
+        return tokensAt(state.get(), nowNanos) >= spec.capacity();
+    }
+    
+    public BucketSpec getSpec() {
+        return spec;
+    }
+    
+    private double tokensAt(State current, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - current.refilledAt());
+        return Math.min(spec.capacity(), current.tokens() + elapsed * refillPerNano);
+    }
+    
+    private long nanosUntilFull(double tokens) {
+        return (long) Math.ceil((spec.capacity() - tokens) / refillPerNano);
+    }
+    
+    private record State(double tokens, long refilledAt) {
+    }
+}
@@ -2,32 +2,90 @@ package main.java.com.hamza.chatbot_ai_image_generator.repository;
 
 import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
 import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
-    Page<ChatMessage> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+    // Keyset pages on (created_at, id), served by idx_chat_messages_user_created_id; a Slice skips the COUNT query
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.user.id = :userId ORDER BY cm.createdAt DESC, cm.id DESC")
+    Slice<ChatMessage> findLatestByUserId(@Param("userId") Long userId, Pageable pageable);
     
-    List<ChatMessage> findByUserOrderByCreatedAtDesc(User user);
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.user.id = :userId " +
+           "AND (cm.createdAt < :createdAt OR (cm.createdAt = :createdAt AND cm.id < :id)) " +
+           "ORDER BY cm.createdAt DESC, cm.id DESC")
+    Slice<ChatMessage> findByUserIdBefore(@Param("userId") Long userId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
     
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.user.id = :userId ORDER BY cm.createdAt DESC")
     List<ChatMessage> findRecentMessagesByUserId(@Param("userId") Long userId, Pageable pageable);
     
-    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.createdAt >= :startDate")
-    long countMessagesCreatedAfter(@Param("startDate") LocalDateTime startDate);
+    // Same keyset pages as above, projected to a preview of the AI response instead of the full TEXT column
+    @Query("SELECT new main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageSummary(" +
+           "cm.id, cm.messageContent, cm.messageType, SUBSTRING(cm.aiResponse, 1, :previewLength), LENGTH(cm.aiResponse), " +
+           "cm.imageUrl, cm.pdfUrl, cm.createdAt, cm.responseTimeMs, cm.timeToFirstTokenMs) " +
+           "FROM ChatMessage cm WHERE cm.user.id = :userId ORDER BY cm.createdAt DESC, cm.id DESC")
+    Slice<ChatMessageSummary> findLatestSummariesByUserId(@Param("userId") Long userId,
+                                                          @Param("previewLength") int previewLength,
+                                                          Pageable pageable);
     
-    @Query("SELECT cm.messageType, COUNT(cm) FROM ChatMessage cm GROUP BY cm.messageType")
-    List<Object[]> countMessagesByType();
+    @Query("SELECT new main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageSummary(" +
+           "cm.id, cm.messageContent, cm.messageType, SUBSTRING(cm.aiResponse, 1, :previewLength), LENGTH(cm.aiResponse), " +
+           "cm.imageUrl, cm.pdfUrl, cm.createdAt, cm.responseTimeMs, cm.timeToFirstTokenMs) " +
+           "FROM ChatMessage cm WHERE cm.user.id = :userId " +
+           "AND (cm.createdAt < :createdAt OR (cm.createdAt = :createdAt AND cm.id < :id)) " +
+           "ORDER BY cm.createdAt DESC, cm.id DESC")
+    Slice<ChatMessageSummary> findSummariesByUserIdBefore(@Param("userId") Long userId,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("id") Long id,
+                                                          @Param("previewLength") int previewLength,
+                                                          Pageable pageable);
     
-    @Query("SELECT AVG(cm.responseTimeMs) FROM ChatMessage cm WHERE cm.responseTimeMs IS NOT NULL")
-    Double getAverageResponseTime();
+    Optional<ChatMessage> findByIdAndUserId(Long id, Long userId);
+    
+    long countByUserId(Long userId);
+    
+    // Clearing history: file references are read without loading entities, rows go in set-based DELETEs
+    @Query("SELECT new main.java.com.hamza.chatbot_ai_image_generator.repository.GeneratedFiles(cm.id, cm.imageUrl, cm.pdfUrl) " +
+           "FROM ChatMessage cm WHERE cm.user.id = :userId ORDER BY cm.id")
+    List<GeneratedFiles> findGeneratedFilesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT new main.java.com.hamza.chatbot_ai_image_generator.repository.GeneratedFiles(cm.id, cm.imageUrl, cm.pdfUrl) " +
+           "FROM ChatMessage cm WHERE cm.user.id = :userId AND (cm.imageUrl IS NOT NULL OR cm.pdfUrl IS NOT NULL)")
+    List<GeneratedFiles> findAllGeneratedFilesByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+    
+    // Seed UsageStatistics once at startup; request paths read the in-memory counters instead
+    @Query("SELECT cm.messageType, COUNT(cm), SUM(cm.responseTimeMs), COUNT(cm.responseTimeMs) " +
+           "FROM ChatMessage cm GROUP BY cm.messageType")
+    List<Object[]> summarizeResponseTimesByType();
+    
+    @Query("SELECT cm.createdAt, cm.messageType, cm.responseTimeMs FROM ChatMessage cm WHERE cm.createdAt >= :since")
+    List<Object[]> findUsageSince(@Param("since") LocalDateTime since);
+    
+    // Read in the clearing transaction, so UsageStatistics can take the deleted rows back out
+    @Query("SELECT cm.createdAt, cm.messageType, cm.responseTimeMs FROM ChatMessage cm WHERE cm.user.id = :userId")
+    List<Object[]> findUsageByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT cm.createdAt, cm.messageType, cm.responseTimeMs FROM ChatMessage cm WHERE cm.id IN :ids")
+    List<Object[]> findUsageByIdIn(@Param("ids") List<Long> ids);
 }
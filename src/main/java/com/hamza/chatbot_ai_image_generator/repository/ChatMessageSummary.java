@@ -0,0 +1,25 @@
+package main.java.com.hamza.chatbot_ai_image_generator.repository;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+
+import java.time.LocalDateTime;
+
+/**
+ * History row without the full AI response: the database returns only the first characters of
+ * it and its total length, and no User is loaded.
+ */
+public record ChatMessageSummary(Long id,
+                                 String messageContent,
+                                 MessageType messageType,
+                                 String responsePreview,
+                                 Integer responseLength,
+                                 String imageUrl,
+                                 String pdfUrl,
+                                 LocalDateTime createdAt,
+                                 Long responseTimeMs,
+                                 Long timeToFirstTokenMs) {
+    
+    public boolean isTruncated() {
+        return responseLength != null && responsePreview != null && responseLength > responsePreview.length();
+    }
+}
@@ -0,0 +1,7 @@
+package main.java.com.hamza.chatbot_ai_image_generator.repository;
+
+/**
+ * Id of a chat message and the URLs of the image and PDF generated for it, if any.
+ */
+public record GeneratedFiles(Long id, String imageUrl, String pdfUrl) {
+}
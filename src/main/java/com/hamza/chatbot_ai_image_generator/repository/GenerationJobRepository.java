@@ -0,0 +1,30 @@
+package main.java.com.hamza.chatbot_ai_image_generator.repository;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.GenerationJobRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJobRecord, String> {
+    
+    Optional<GenerationJobRecord> findByIdAndUsername(String id, String username);
+    
+    // Jobs left queued or running by a previous run of the application
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJobRecord j SET j.status = 'FAILED', j.error = :error, j.completedAt = :now " +
+           "WHERE j.status IN ('QUEUED', 'RUNNING')")
+    int failUnfinished(@Param("error") String error, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GenerationJobRecord j WHERE j.completedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,10 +2,15 @@ package main.java.com.hamza.chatbot_ai_image_generator.repository;
 
 import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,6 +24,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     boolean existsByEmail(String email);
     
-    @Query("SELECT COUNT(u) FROM User u WHERE u.createdAt >= :startDate")
-    long countUsersCreatedAfter(@Param("startDate") java.time.LocalDateTime startDate);
+    // Seeds UsageStatistics at startup
+    @Query("SELECT u.createdAt FROM User u WHERE u.createdAt >= :since")
+    List<LocalDateTime> findCreatedAtSince(@Param("since") LocalDateTime since);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.role = :role WHERE u.username IN :usernames AND u.role <> :role")
+    int updateRole(@Param("usernames") Collection<String> usernames, @Param("role") User.Role role);
 }
@@ -0,0 +1,66 @@
+package main.java.com.hamza.chatbot_ai_image_generator.resilience;
+
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps concurrent model calls for one message type so a slow provider cannot absorb every
+ * request thread. Callers wait at most {@code maxWaitMillis} for a slot before failing fast.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+    
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMillis) {
+        super();
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+    
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new AIUnavailableException("Too many concurrent " + name + " requests, please retry later", 1);
+        }
+    }
+    
+    public void release() {
+        permits.release();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+    
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    public int getInUse() {
+        return maxConcurrent - permits.availablePermits();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
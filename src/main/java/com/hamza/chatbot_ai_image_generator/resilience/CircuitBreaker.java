@@ -0,0 +1,219 @@
+package main.java.com.hamza.chatbot_ai_image_generator.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. Opens when the failure rate over the last {@code windowSize} calls
+ * reaches the threshold (after at least {@code minCalls}), rejects calls while open, then lets a
+ * few trial calls through; they close the breaker if all succeed and reopen it on any failure.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final String name;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMillis;
+    private final int halfOpenPermits;
+    private final LongSupplier clock;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+    private int next;
+    private int count;
+    private int failures;
+    
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timesOpened = new LongAdder();
+    
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenPermits) {
+        this(name, windowSize, minCalls, failureRateThreshold, openDurationMillis, halfOpenPermits, System::currentTimeMillis);
+    }
+    
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenPermits, LongSupplier clock) {
+        super();
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermits = halfOpenPermits;
+        this.clock = clock;
+    }
+    
+    /**
+     * Claims permission for one call; every granted permission must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMillis) {
+                state = State.HALF_OPEN;
+                halfOpenInFlight = 0;
+                halfOpenSuccesses = 0;
+            }
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    if (halfOpenInFlight + halfOpenSuccesses < halfOpenPermits) {
+                        halfOpenInFlight++;
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            rejected.increment();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Whether a call would currently be let through, without claiming a permission.
+     */
+    public boolean isCallPermitted() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> clock.getAsLong() - openedAt >= openDurationMillis;
+                case HALF_OPEN -> halfOpenInFlight + halfOpenSuccesses < halfOpenPermits;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                halfOpenSuccesses++;
+                if (halfOpenSuccesses >= halfOpenPermits) {
+                    close();
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (count >= minCalls && (double) failures / count >= failureRateThreshold) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // The call was abandoned (e.g. cancelled by a hedge) and says nothing about provider health
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+                halfOpenInFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getRetryAfterSeconds() {
+        lock.lock();
+        try {
+            long remaining = state == State.OPEN ? openDurationMillis - (clock.getAsLong() - openedAt) : 0;
+            return Math.max(1, (remaining + 999) / 1000);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("state", state.name());
+            stats.put("failureRate", count == 0 ? 0.0 : (double) failures / count);
+            stats.put("calls", count);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("rejected", rejected.sum());
+        stats.put("timesOpened", timesOpened.sum());
+        return stats;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    private void record(boolean failure) {
+        if (count == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        timesOpened.increment();
+    }
+    
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        count = 0;
+        failures = 0;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+    }
+}
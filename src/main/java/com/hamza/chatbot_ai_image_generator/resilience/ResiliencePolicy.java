@@ -0,0 +1,41 @@
+package main.java.com.hamza.chatbot_ai_image_generator.resilience;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per message type bulkheads and hard call deadlines for model calls.
+ */
+public class ResiliencePolicy {
+
+    private final Map<MessageType, Bulkhead> bulkheads;
+    private final Map<MessageType, Duration> deadlines;
+    
+    public ResiliencePolicy(Map<MessageType, Bulkhead> bulkheads, Map<MessageType, Duration> deadlines) {
+        super();
+        this.bulkheads = new EnumMap<>(bulkheads);
+        this.deadlines = new EnumMap<>(deadlines);
+    }
+    
+    public Bulkhead bulkhead(MessageType type) {
+        return bulkheads.get(type);
+    }
+    
+    public Duration deadline(MessageType type) {
+        return deadlines.get(type);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        bulkheads.forEach((type, bulkhead) -> stats.put(type.name(), Map.of(
+                "maxConcurrent", bulkhead.getMaxConcurrent(),
+                "inUse", bulkhead.getInUse(),
+                "rejected", bulkhead.getRejected(),
+                "deadlineMs", deadlines.get(type).toMillis())));
+        return stats;
+    }
+}
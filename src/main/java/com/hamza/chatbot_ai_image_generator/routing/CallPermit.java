@@ -0,0 +1,48 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The circuit breaker permission of one model call, settled exactly once. The call and a caller
+ * giving up on it at the deadline race to settle it; whichever gets there first records the
+ * outcome and the other records nothing, so a late answer cannot undo a charged timeout.
+ */
+class CallPermit {
+
+    private static final int PENDING = 0;
+    private static final int GRANTED = 1;
+    private static final int SETTLED = 2;
+    
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    
+    /**
+     * Called once the breaker has granted the permission; false if the caller already gave up on
+     * the call, in which case the permission must be handed straight back.
+     */
+    boolean grant() {
+        return state.compareAndSet(PENDING, GRANTED);
+    }
+    
+    /**
+     * Claims the outcome of a granted permission; false if it was never granted or is already settled.
+     */
+    boolean settle() {
+        return state.compareAndSet(GRANTED, SETTLED);
+    }
+    
+    /**
+     * Gives up on the call. Returns true if a permission was granted and the caller now owns its
+     * outcome; false if the call had not been granted one yet or has already settled it.
+     */
+    boolean abandon() {
+        while (true) {
+            int current = state.get();
+            if (current == SETTLED) {
+                return false;
+            }
+            if (state.compareAndSet(current, SETTLED)) {
+                return current == GRANTED;
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AITimeoutException;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistogram;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs model calls off the caller's thread under a hard deadline; a call still running when the
+ * deadline passes is cancelled, counted as a provider failure and surfaced as a timeout.
+ * <p>
+ * Optionally adds tail-latency hedging: when a call has not returned after the provider's recent p-th percentile
+ * latency, a second identical request goes to the next-ranked provider (or the same one if it is
+ * the only one). The first successful answer wins and the other call is cancelled. Hedges draw on
+ * a budget that grows by {@code budgetRatio} per call, so extra spend is capped at that fraction
+ * of traffic plus a small burst.
+ */
+public class HedgedCallExecutor {
+
+    private static final long TOKEN_SCALE = 1000;
+    
+    private final ModelRouter modelRouter;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final int minSamples;
+    private final long tokensPerCall;
+    private final long maxTokens;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    private final AtomicLong budget;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedgesFired = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+    
+    public HedgedCallExecutor(ModelRouter modelRouter, boolean enabled, double percentile, long minDelayMillis,
+                              int minSamples, double budgetRatio, int maxBurst) {
+        super();
+        this.modelRouter = modelRouter;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.minSamples = minSamples;
+        this.tokensPerCall = Math.round(budgetRatio * TOKEN_SCALE);
+        this.maxTokens = maxBurst * TOKEN_SCALE;
+        this.budget = new AtomicLong(maxTokens);
+    }
+    
+    public String call(RoutedModel primary, Prompt prompt, Duration deadline) {
+        return call(primary, prompt, deadline, () -> { });
+    }
+    
+    /**
+     * Like {@link #call(RoutedModel, Prompt, Duration)}, running {@code onFinished} once every request
+     * it sent has actually returned. That can be after this method has returned or thrown: a call
+     * cancelled at the deadline or by a winning hedge keeps going until its HTTP request ends.
+     */
+    public String call(RoutedModel primary, Prompt prompt, Duration deadline, Runnable onFinished) {
+        // One reference for this caller, released once it can no longer start another request
+        Running running = new Running(onFinished);
+        try {
+            return call(primary, prompt, deadline, running);
+        } finally {
+            running.release();
+        }
+    }
+    
+    private String call(RoutedModel primary, Prompt prompt, Duration deadline, Running running) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        LatencyHistogram latency = null;
+        boolean hedgeable = false;
+        if (enabled) {
+            calls.increment();
+            budget.accumulateAndGet(tokensPerCall, (current, add) -> Math.min(maxTokens, current + add));
+            latency = primary.getProvider().getRecentLatency();
+            hedgeable = latency.getCount() >= minSamples;
+        }
+        
+        CompletableFuture<Outcome> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        Attempt primaryCall = submit(primary, prompt, winner, outstanding, running, false);
+        if (!hedgeable) {
+            return await(winner, primaryCall, null, deadline, deadlineNanos);
+        }
+        
+        long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minDelayMillis, latency.valueAtPercentile(percentile)));
+        try {
+            return winner.get(Math.min(hedgeDelayNanos, remainingNanos(deadlineNanos)), TimeUnit.NANOSECONDS).response();
+        } catch (TimeoutException e) {
+            // fall through and consider a hedge
+        } catch (InterruptedException e) {
+            primaryCall.future().cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model response", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        
+        if (remainingNanos(deadlineNanos) == 0 || !tryAcquireHedge()) {
+            hedgesDenied.increment();
+            return await(winner, primaryCall, null, deadline, deadlineNanos);
+        }
+        
+        hedgesFired.increment();
+        outstanding.incrementAndGet();
+        RoutedModel hedge = hedgeRoute(primary);
+        Attempt hedgeCall = submit(hedge, prompt, winner, outstanding, running, true);
+        return await(winner, primaryCall, hedgeCall, deadline, deadlineNanos);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("percentile", percentile);
+        stats.put("calls", calls.sum());
+        stats.put("hedgesFired", hedgesFired.sum());
+        stats.put("hedgesWon", hedgesWon.sum());
+        stats.put("hedgesDenied", hedgesDenied.sum());
+        stats.put("budgetRemaining", (double) budget.get() / TOKEN_SCALE);
+        stats.put("deadlinesExceeded", deadlinesExceeded.sum());
+        return stats;
+    }
+    
+    // Inferred as the bean's destroy method
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private Attempt submit(RoutedModel route, Prompt prompt, CompletableFuture<Outcome> winner,
+                           AtomicInteger outstanding, Running running, boolean hedge) {
+        CallPermit permit = new CallPermit();
+        running.acquire();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    String response = modelRouter.call(route, prompt, permit);
+                    winner.complete(new Outcome(response, hedge));
+                } catch (RuntimeException e) {
+                    // Only fail once every attempt has failed; otherwise the other call may still win
+                    if (outstanding.decrementAndGet() == 0) {
+                        winner.completeExceptionally(e);
+                    }
+                } finally {
+                    running.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            running.release();
+            throw e;
+        }
+        return new Attempt(route, permit, future);
+    }
+    
+    private String await(CompletableFuture<Outcome> winner, Attempt primaryCall, Attempt hedgeCall,
+                         Duration deadline, long deadlineNanos) {
+        try {
+            Outcome outcome = winner.get(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS);
+            if (hedgeCall != null) {
+                if (outcome.hedge()) {
+                    hedgesWon.increment();
+                    primaryCall.future().cancel(true);
+                } else {
+                    hedgeCall.future().cancel(true);
+                }
+            }
+            return outcome.response();
+        } catch (TimeoutException e) {
+            deadlinesExceeded.increment();
+            timeOut(primaryCall, deadline, true);
+            if (hedgeCall != null) {
+                // A hedge to the same provider is not charged a second time
+                timeOut(hedgeCall, deadline, hedgeCall.route().getProvider() != primaryCall.route().getProvider());
+            }
+            throw new AITimeoutException("AI provider did not respond within " + deadline.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            primaryCall.future().cancel(true);
+            if (hedgeCall != null) {
+                hedgeCall.future().cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model response", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    // Abandoned before it is cancelled, so the interrupted call cannot settle its permission first
+    private static void timeOut(Attempt attempt, Duration deadline, boolean charge) {
+        if (attempt.permit().abandon()) {
+            ModelProvider provider = attempt.route().getProvider();
+            if (charge) {
+                provider.recordFailure(deadline.toMillis());
+                provider.getCircuitBreaker().onFailure();
+            } else {
+                provider.getCircuitBreaker().onIgnored();
+            }
+        }
+        attempt.future().cancel(true);
+    }
+    
+    private RoutedModel hedgeRoute(RoutedModel primary) {
+        for (ModelProvider provider : modelRouter.rank()) {
+            if (provider != primary.getProvider() && modelRouter.isHealthy(provider)) {
+                return new RoutedModel(provider, provider.getDefaultModel(), false);
+            }
+        }
+        return primary;
+    }
+    
+    private boolean tryAcquireHedge() {
+        while (true) {
+            long current = budget.get();
+            if (current < TOKEN_SCALE) {
+                return false;
+            }
+            if (budget.compareAndSet(current, current - TOKEN_SCALE)) {
+                return true;
+            }
+        }
+    }
+    
+    private static long remainingNanos(long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+    
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+    
+    private record Outcome(String response, boolean hedge) {
+    }
+    
+    private record Attempt(RoutedModel route, CallPermit permit, Future<?> future) {
+    }
+    
+    // Counts the requests of one call still running, plus the caller while it may start more
+    private static final class Running {
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final Runnable onFinished;
+        
+        Running(Runnable onFinished) {
+            super();
+            this.onFinished = onFinished;
+        }
+        
+        void acquire() {
+            references.incrementAndGet();
+        }
+        
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                onFinished.run();
+            }
+        }
+    }
+}
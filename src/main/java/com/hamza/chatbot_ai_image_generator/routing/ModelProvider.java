@@ -0,0 +1,88 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.CircuitBreaker;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistogram;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.RollingLatencyHistogram;
+import org.springframework.ai.chat.client.ChatClient;
+
+/**
+ * One chat model backend the router can send requests to.
+ */
+public class ModelProvider {
+
+    // Routing and hedging read latency on every call; a merge up to a second old is recent enough
+    private static final long LATENCY_SNAPSHOT_MAX_AGE_MS = 1000;
+    
+    private final String name;
+    private final ChatClient chatClient;
+    private final String defaultModel;
+    private final ProviderStats stats;
+    private final CircuitBreaker circuitBreaker;
+    private final RollingLatencyHistogram latency;
+    private final Double temperature;
+    
+    public ModelProvider(String name, ChatClient chatClient, String defaultModel, int statsWindow,
+                         CircuitBreaker circuitBreaker) {
+        this(name, chatClient, defaultModel, statsWindow, circuitBreaker, new RollingLatencyHistogram(300_000, 5), null);
+    }
+    
+    public ModelProvider(String name, ChatClient chatClient, String defaultModel, int statsWindow,
+                         CircuitBreaker circuitBreaker, RollingLatencyHistogram latency, Double temperature) {
+        super();
+        this.name = name;
+        this.chatClient = chatClient;
+        this.defaultModel = defaultModel;
+        this.stats = new ProviderStats(statsWindow);
+        this.circuitBreaker = circuitBreaker;
+        this.latency = latency;
+        this.temperature = temperature;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public ChatClient getChatClient() {
+        return chatClient;
+    }
+    
+    public String getDefaultModel() {
+        return defaultModel;
+    }
+    
+    public ProviderStats getStats() {
+        return stats;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    public RollingLatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    /**
+     * Latency over the sliding window, merged at most a second ago. Shared; must not be modified.
+     */
+    public LatencyHistogram getRecentLatency() {
+        return latency.snapshot(LATENCY_SNAPSHOT_MAX_AGE_MS);
+    }
+    
+    public void recordSuccess(long latencyMillis) {
+        stats.recordSuccess();
+        latency.record(latencyMillis);
+    }
+    
+    public void recordFailure(long latencyMillis) {
+        stats.recordFailure();
+        latency.record(latencyMillis);
+    }
+    
+    /**
+     * Temperature from the model's default options; null when the model does not report one.
+     */
+    public Double getTemperature() {
+        return temperature;
+    }
+}
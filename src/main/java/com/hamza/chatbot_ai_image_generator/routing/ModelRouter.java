@@ -0,0 +1,317 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.CircuitBreaker;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistogram;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends each call to the currently fastest healthy provider (lowest rolling p50 among providers
+ * whose error rate is under the limit and whose circuit breaker is not open). A small share of traffic explores the other providers so
+ * their statistics stay current, and per message type overrides can pin a provider and/or model.
+ * Every call is timed as {@code ai.model.calls} and its token usage counted as {@code ai.model.tokens},
+ * tagged by provider and model.
+ */
+public class ModelRouter {
+
+    private final List<ModelProvider> providers;
+    private final Map<MessageType, RouteOverride> overrides;
+    private final double maxErrorRate;
+    private final int minSamples;
+    private final double explorationRatio;
+    private final MeterRegistry meterRegistry;
+    
+    public ModelRouter(List<ModelProvider> providers, Map<MessageType, RouteOverride> overrides,
+                       double maxErrorRate, int minSamples, double explorationRatio, MeterRegistry meterRegistry) {
+        super();
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("No chat model provider is configured");
+        }
+        this.providers = List.copyOf(providers);
+        this.overrides = new EnumMap<>(MessageType.class);
+        this.overrides.putAll(overrides);
+        this.maxErrorRate = maxErrorRate;
+        this.minSamples = minSamples;
+        this.explorationRatio = explorationRatio;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public RoutedModel select(MessageType type) {
+        RouteOverride override = overrides.get(type);
+        ModelProvider provider = null;
+        if (override != null && override.provider != null) {
+            provider = findProvider(override.provider);
+            if (provider != null && !isHealthy(provider)) {
+                provider = null;
+            }
+        }
+        if (provider == null) {
+            provider = rank().get(0);
+        }
+        
+        if (override != null && override.model != null && (override.provider == null || override.provider.equals(provider.getName()))) {
+            return new RoutedModel(provider, override.model, true);
+        }
+        return new RoutedModel(provider, provider.getDefaultModel(), false);
+    }
+    
+    /**
+     * Providers ordered by preference: cold providers first so they collect samples, then healthy
+     * providers by p50, then unhealthy ones by error rate. Occasionally a random healthy provider
+     * is moved to the front to refresh its statistics.
+     */
+    public List<ModelProvider> rank() {
+        // Snapshot the statistics first so concurrent updates cannot reorder mid-sort
+        List<Candidate> candidates = new ArrayList<>(providers.size());
+        for (ModelProvider provider : providers) {
+            ProviderStats stats = provider.getStats();
+            boolean healthy = isHealthy(provider);
+            candidates.add(new Candidate(provider, stats.getSampleCount() < minSamples, healthy,
+                    healthy ? provider.getRecentLatency().valueAtPercentile(50) : 0L, stats.getErrorRate()));
+        }
+        candidates.sort(Comparator
+                .comparing((Candidate c) -> !c.cold())
+                .thenComparing(c -> !c.healthy())
+                .thenComparingLong(Candidate::p50)
+                .thenComparingDouble(Candidate::errorRate));
+        
+        List<ModelProvider> ranked = new ArrayList<>(candidates.size());
+        candidates.forEach(c -> ranked.add(c.provider()));
+        
+        if (ranked.size() > 1 && ThreadLocalRandom.current().nextDouble() < explorationRatio) {
+            Candidate explored = candidates.get(1 + ThreadLocalRandom.current().nextInt(candidates.size() - 1));
+            if (explored.healthy()) {
+                ranked.remove(explored.provider());
+                ranked.add(0, explored.provider());
+            }
+        }
+        return ranked;
+    }
+    
+    public String call(RoutedModel route, Prompt prompt) {
+        return call(route, prompt, new CallPermit());
+    }
+    
+    /**
+     * Records the call's outcome only if it settles {@code permit} first; a caller that gave up on it
+     * at the deadline has already charged the timeout.
+     */
+    String call(RoutedModel route, Prompt prompt, CallPermit permit) {
+        ModelProvider provider = route.getProvider();
+        CircuitBreaker breaker = route.getProvider().getCircuitBreaker();
+        acquirePermission(route.getProvider());
+        if (!permit.grant()) {
+            breaker.onIgnored();
+            throw new CancellationException("Model call abandoned before it was sent");
+        }
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = request(route, prompt).call().chatResponse();
+            if (permit.settle()) {
+                provider.recordSuccess(elapsedMillis(start));
+                breaker.onSuccess();
+                recordCall(route, "success", start);
+            } else {
+                recordCall(route, "cancelled", start);
+            }
+            recordTokens(route, usage(response));
+            return text(response);
+        } catch (RuntimeException e) {
+            if (!permit.settle()) {
+                recordCall(route, "cancelled", start);
+            } else if (Thread.currentThread().isInterrupted()) {
+                // Cancelled by its winning hedge
+                breaker.onIgnored();
+                recordCall(route, "cancelled", start);
+            } else {
+                provider.recordFailure(elapsedMillis(start));
+                breaker.onFailure();
+                recordCall(route, "error", start);
+            }
+            throw e;
+        }
+    }
+    
+    public Flux<String> stream(RoutedModel route, Prompt prompt) {
+        ModelProvider provider = route.getProvider();
+        CircuitBreaker breaker = provider.getCircuitBreaker();
+        return Flux.defer(() -> {
+            acquirePermission(provider);
+            long start = System.nanoTime();
+            // Providers report usage on the last chunk, if at all
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            return request(route, prompt).stream().chatResponse()
+                    .doOnNext(response -> {
+                        Usage chunkUsage = usage(response);
+                        if (chunkUsage != null) {
+                            usage.set(chunkUsage);
+                        }
+                    })
+                    .mapNotNull(ModelRouter::text)
+                    .doOnComplete(() -> {
+                        provider.recordSuccess(elapsedMillis(start));
+                        breaker.onSuccess();
+                        recordCall(route, "success", start);
+                        recordTokens(route, usage.get());
+                    })
+                    .doOnError(e -> {
+                        provider.recordFailure(elapsedMillis(start));
+                        breaker.onFailure();
+                        recordCall(route, "error", start);
+                    })
+                    .doOnCancel(() -> {
+                        breaker.onIgnored();
+                        recordCall(route, "cancelled", start);
+                    });
+        });
+    }
+    
+    public boolean isHealthy(ModelProvider provider) {
+        if (!provider.getCircuitBreaker().isCallPermitted()) {
+            return false;
+        }
+        ProviderStats stats = provider.getStats();
+        return stats.getSampleCount() < minSamples || stats.getErrorRate() <= maxErrorRate;
+    }
+    
+    public List<ModelProvider> getProviders() {
+        return providers;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ModelProvider provider : providers) {
+            ProviderStats providerStats = provider.getStats();
+            LatencyHistogram latency = provider.getLatency().snapshot();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("model", provider.getDefaultModel());
+            entry.put("healthy", isHealthy(provider));
+            entry.put("calls", providerStats.getTotalCalls());
+            entry.put("samples", providerStats.getSampleCount());
+            entry.put("p50Ms", latency.valueAtPercentile(50));
+            entry.put("p99Ms", latency.valueAtPercentile(99));
+            entry.put("errorRate", providerStats.getErrorRate());
+            entry.put("circuitBreaker", provider.getCircuitBreaker().getStats());
+            stats.put(provider.getName(), entry);
+        }
+        return stats;
+    }
+    
+    private ChatClient.ChatClientRequestSpec request(RoutedModel route, Prompt prompt) {
+        ChatClient.ChatClientRequestSpec spec = route.getProvider().getChatClient().prompt(prompt);
+        if (route.isModelOverridden()) {
+            spec = spec.options(ChatOptions.builder().model(route.getModel()).build());
+        }
+        return spec;
+    }
+    
+    // Provider and model names come from configuration, so the tag sets stay small
+    private void recordCall(RoutedModel route, String outcome, long startNanos) {
+        Timer.builder("ai.model.calls")
+                .description("Chat model calls, per provider and model")
+                .tag("provider", route.getProvider().getName())
+                .tag("model", route.getModel())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void recordTokens(RoutedModel route, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        countTokens(route, "prompt", usage.getPromptTokens());
+        countTokens(route, "completion", usage.getCompletionTokens());
+    }
+    
+    private void countTokens(RoutedModel route, String kind, Integer tokens) {
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        Counter.builder("ai.model.tokens")
+                .description("Prompt and completion tokens reported by the provider")
+                .baseUnit("tokens")
+                .tag("provider", route.getProvider().getName())
+                .tag("model", route.getModel())
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment(tokens);
+    }
+    
+    private static String text(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+    
+    private static Usage usage(ChatResponse response) {
+        return response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+    }
+    
+    private static void acquirePermission(ModelProvider provider) {
+        CircuitBreaker breaker = provider.getCircuitBreaker();
+        if (!breaker.tryAcquirePermission()) {
+            throw new AIUnavailableException("AI provider '" + provider.getName() + "' is temporarily unavailable",
+                    breaker.getRetryAfterSeconds());
+        }
+    }
+    
+    private ModelProvider findProvider(String name) {
+        for (ModelProvider provider : providers) {
+            if (provider.getName().equals(name)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+    
+    private record Candidate(ModelProvider provider, boolean cold, boolean healthy, long p50, double errorRate) {
+    }
+    
+    /**
+     * Per message type routing override; either field may be null.
+     */
+    public static class RouteOverride {
+        private final String provider;
+        private final String model;
+        
+        public RouteOverride(String provider, String model) {
+            super();
+            this.provider = provider;
+            this.model = model;
+        }
+        
+        public String getProvider() {
+            return provider;
+        }
+        
+        public String getModel() {
+            return model;
+        }
+    }
+}
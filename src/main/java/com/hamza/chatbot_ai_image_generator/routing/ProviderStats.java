@@ -0,0 +1,78 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rolling window of the last N call outcomes for one provider, from which its error rate is taken.
+ * Latency is tracked by the provider's {@code RollingLatencyHistogram}, not here.
+ */
+public class ProviderStats {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] failures;
+    private int next;
+    private int count;
+    private int failureCount;
+    private long totalCalls;
+    
+    public ProviderStats(int window) {
+        super();
+        this.failures = new boolean[window];
+    }
+    
+    public void recordSuccess() {
+        record(false);
+    }
+    
+    public void recordFailure() {
+        record(true);
+    }
+    
+    private void record(boolean failure) {
+        lock.lock();
+        try {
+            if (count == failures.length) {
+                if (failures[next]) {
+                    failureCount--;
+                }
+            } else {
+                count++;
+            }
+            failures[next] = failure;
+            if (failure) {
+                failureCount++;
+            }
+            next = (next + 1) % failures.length;
+            totalCalls++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getSampleCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getTotalCalls() {
+        lock.lock();
+        try {
+            return totalCalls;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public double getErrorRate() {
+        lock.lock();
+        try {
+            return count == 0 ? 0.0 : (double) failureCount / count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+/**
+ * The provider chosen for one call, plus the model to request from it.
+ */
+public class RoutedModel {
+
+    private final ModelProvider provider;
+    private final String model;
+    private final boolean modelOverridden;
+    
+    public RoutedModel(ModelProvider provider, String model, boolean modelOverridden) {
+        super();
+        this.provider = provider;
+        this.model = model;
+        this.modelOverridden = modelOverridden;
+    }
+    
+    public ModelProvider getProvider() {
+        return provider;
+    }
+    
+    public String getModel() {
+        return model;
+    }
+    
+    public boolean isModelOverridden() {
+        return modelOverridden;
+    }
+}
@@ -1,76 +1,135 @@
 package main.java.com.hamza.chatbot_ai_image_generator.service;
 
-import org.springframework.ai.chat.client.ChatClient;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.ResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.ResponseCacheKey;
+import main.java.com.hamza.chatbot_ai_image_generator.cache.SemanticResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AITimeoutException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
+import main.java.com.hamza.chatbot_ai_image_generator.prompt.PromptTemplateRegistry;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.Bulkhead;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.ResiliencePolicy;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.HedgedCallExecutor;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.RoutedModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+/**
+ * Model calls behind the caches, request coalescing, bulkheads and deadlines. Each public method
+ * is timed as {@code ai.requests} (tagged by method and outcome) and every answer is counted as
+ * {@code ai.responses} by where it came from: a cache, a coalesced call or the model.
+ */
 @Service
 public class AIService {
     
-    private final ChatClient chatClient;
+    private final ModelRouter modelRouter;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final ResiliencePolicy resiliencePolicy;
+    private final PromptTemplateRegistry promptTemplates;
+    private final ResponseCache responseCache;
+    private final SemanticResponseCache semanticResponseCache;
+    private final MeterRegistry meterRegistry;
     
-    @Value("${spring.ai.google.genai.chat.options.model:gemini-pro}")
-    private String model;
+    @Value("${app.ai.cache.enabled:true}")
+    private boolean cacheEnabled;
     
-    @Value("${spring.ai.google.genai.chat.options.temperature:0.7}")
-    private Double temperature;
+    @Value("${app.ai.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+    
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder flightLeaders = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
     
     @Autowired
-    public AIService(ChatClient.Builder chatClientBuilder) {
+    public AIService(ModelRouter modelRouter,
+                     HedgedCallExecutor hedgedCallExecutor,
+                     ResiliencePolicy resiliencePolicy,
+                     PromptTemplateRegistry promptTemplates,
+                     ResponseCache responseCache,
+                     ObjectProvider<SemanticResponseCache> semanticResponseCache,
+                     MeterRegistry meterRegistry) {
         super();
-        this.chatClient = chatClientBuilder.build();
+        this.modelRouter = modelRouter;
+        this.hedgedCallExecutor = hedgedCallExecutor;
+        this.resiliencePolicy = resiliencePolicy;
+        this.promptTemplates = promptTemplates;
+        this.responseCache = responseCache;
+        this.semanticResponseCache = semanticResponseCache.getIfAvailable();
+        this.meterRegistry = meterRegistry;
     }
     
     public String generateTextResponse(String userMessage) {
+        return generateTextResponse(userMessage, "");
+    }
+    
+    public String generateTextResponse(String userMessage, String conversationContext) {
         try {
-            String promptTemplate = """
-                You are a helpful and friendly AI assistant. Please respond to the following user message in a natural, conversational manner.
-                
-                User message: {message}
-                
-                Please provide a helpful and accurate response.
-                """;
+            Prompt prompt = promptTemplates.render(PromptTemplateRegistry.TEXT,
+                    Map.of("message", userMessage, "context", conversationContext));
             
-            PromptTemplate template = new PromptTemplate(promptTemplate, Map.of("message", userMessage));
-            Prompt prompt = template.create();
-            
-            return chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            // An answer that depends on earlier turns must not be served to a paraphrase from another conversation
+            String semanticKey = conversationContext.isEmpty() ? userMessage : null;
+            return timed("text", () -> call(MessageType.TEXT, semanticKey, prompt));
+        } catch (AIUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate AI response: " + e.getMessage(), e);
         }
     }
     
+    public Flux<String> streamTextResponse(String userMessage) {
+        return streamTextResponse(userMessage, "");
+    }
+    
+    public Flux<String> streamTextResponse(String userMessage, String conversationContext) {
+        Prompt prompt = promptTemplates.render(PromptTemplateRegistry.TEXT,
+                Map.of("message", userMessage, "context", conversationContext));
+        
+        Bulkhead bulkhead = resiliencePolicy.bulkhead(MessageType.TEXT);
+        // The deadline bounds the gap between tokens, so a stalled stream is cut off
+        return Flux.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    return Flux.defer(() -> {
+                                bulkhead.acquire();
+                                return modelRouter.stream(modelRouter.select(MessageType.TEXT), prompt)
+                                        .timeout(resiliencePolicy.deadline(MessageType.TEXT))
+                                        .doFinally(signal -> bulkhead.release());
+                            })
+                            .onErrorMap(TimeoutException.class, e -> new AITimeoutException("AI provider stopped responding mid-stream"))
+                            .doOnComplete(() -> sample.stop(requestTimer("text_stream", "success")))
+                            .doOnError(e -> sample.stop(requestTimer("text_stream", outcome(e))))
+                            .doOnCancel(() -> sample.stop(requestTimer("text_stream", "cancelled")));
+                })
+                .onErrorMap(e -> !(e instanceof AIUnavailableException),
+                        e -> new RuntimeException("Failed to stream AI response: " + e.getMessage(), e));
+    }
+    
     public String generateImagePrompt(String userDescription) {
         try {
-            String promptTemplate = """
-                You are an AI image generation specialist. Convert the following user description into a detailed, professional image generation prompt.
-                
-                User description: {description}
-                
-                Create a detailed prompt that includes:
-                - Subject matter
-                - Style (photorealistic, artistic, cartoon, etc.)
-                - Lighting and atmosphere
-                - Composition and framing
-                - Color scheme
-                - Any additional details that would enhance the image
-                
-                Return only the image generation prompt, no additional text.
-                """;
-            
-            PromptTemplate template = new PromptTemplate(promptTemplate, Map.of("description", userDescription));
-            Prompt prompt = template.create();
+            Prompt prompt = promptTemplates.render(PromptTemplateRegistry.IMAGE_GENERATION,
+                    Map.of("description", userDescription));
             
-            return chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            return timed("image_prompt", () -> call(MessageType.IMAGE_GENERATION, userDescription, prompt));
+        } catch (AIUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate image prompt: " + e.getMessage(), e);
         }
@@ -78,28 +137,174 @@ public class AIService {
     
     public String generatePdfContent(String userRequest) {
         try {
-            String promptTemplate = """
-                You are creating content for a PDF document. Based on the user's request, generate well-structured content that would be suitable for a PDF.
-                
-                User request: {request}
-                
-                Please create content that includes:
-                - A clear title
-                - Well-organized sections with headings
-                - Detailed information relevant to the request
-                - Professional formatting suggestions
-                
-                Format the content with clear section markers like [TITLE], [SECTION], [SUBSECTION] that can be used for PDF generation.
-                """;
+            Prompt prompt = promptTemplates.render(PromptTemplateRegistry.PDF_GENERATION,
+                    Map.of("request", userRequest));
             
-            PromptTemplate template = new PromptTemplate(promptTemplate, Map.of("request", userRequest));
-            Prompt prompt = template.create();
-            
-            return chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            return timed("pdf_content", () -> call(MessageType.PDF_GENERATION, userRequest, prompt));
+        } catch (AIUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate PDF content: " + e.getMessage(), e);
         }
     }
+    
+    public String summarizeConversation(String currentSummary, String newTurns, int maxWords) {
+        try {
+            Prompt prompt = promptTemplates.render(PromptTemplateRegistry.SUMMARY, Map.of(
+                    "summary", currentSummary.isEmpty() ? "(none yet)" : currentSummary,
+                    "turns", newTurns,
+                    "maxWords", maxWords));
+            
+            return timed("summary", () -> hedgedCallExecutor.call(modelRouter.select(MessageType.TEXT), prompt,
+                    resiliencePolicy.deadline(MessageType.TEXT)));
+        } catch (AIUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to summarize conversation: " + e.getMessage(), e);
+        }
+    }
+    
+    public Map<String, Object> getCoalescingStats() {
+        return Map.of(
+                "enabled", coalescingEnabled,
+                "inFlight", inFlight.size(),
+                "leaders", flightLeaders.sum(),
+                "coalesced", coalescedCalls.sum());
+    }
+    
+    // userInput is the semantic cache key; null skips the semantic cache
+    private String call(MessageType type, String userInput, Prompt prompt) {
+        RoutedModel route = modelRouter.select(type);
+        String key = ResponseCacheKey.of(prompt.getContents(), route.getModel(),
+                route.getProvider().getTemperature());
+        
+        if (cacheEnabled) {
+            Optional<String> cached = responseCache.get(key);
+            if (cached.isPresent()) {
+                countResponse(type, "response_cache");
+                return cached.get();
+            }
+        }
+        
+        SemanticResponseCache.Lookup lookup = null;
+        if (semanticResponseCache != null && userInput != null) {
+            lookup = semanticResponseCache.lookup(type, userInput);
+            Optional<String> similar = lookup.getResponse();
+            if (similar.isPresent()) {
+                countResponse(type, "semantic_cache");
+                if (cacheEnabled) {
+                    responseCache.put(key, similar.get());
+                }
+                return similar.get();
+            }
+        }
+        
+        if (!coalescingEnabled) {
+            return callModel(type, lookup, prompt, route, key);
+        }
+        
+        // Identical prompts arriving while a call is in flight wait for that call instead of issuing their own
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedCalls.increment();
+            countResponse(type, "coalesced");
+            return join(type, existing);
+        }
+        
+        flightLeaders.increment();
+        try {
+            String response = callModel(type, lookup, prompt, route, key);
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+    
+    // lookup is the semantic cache miss to fill in, or null
+    private String callModel(MessageType type, SemanticResponseCache.Lookup lookup, Prompt prompt, RoutedModel route,
+                             String key) {
+        Bulkhead bulkhead = resiliencePolicy.bulkhead(type);
+        bulkhead.acquire();
+        // Released when the provider requests have really finished, not when the deadline gives up on them
+        String response = hedgedCallExecutor.call(route, prompt, resiliencePolicy.deadline(type), bulkhead::release);
+        countResponse(type, "model");
+        // An empty answer is more likely a provider hiccup than the answer to keep serving
+        if (response != null && !response.isBlank()) {
+            if (cacheEnabled) {
+                responseCache.put(key, response);
+            }
+            if (lookup != null) {
+                semanticResponseCache.put(lookup, response);
+            }
+        }
+        return response;
+    }
+    
+    private <T> T timed(String method, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = call.get();
+            sample.stop(requestTimer(method, "success"));
+            return result;
+        } catch (RuntimeException | Error e) {
+            sample.stop(requestTimer(method, outcome(e)));
+            throw e;
+        }
+    }
+    
+    // method and outcome come from fixed sets, so the number of series stays small
+    private Timer requestTimer(String method, String outcome) {
+        return Timer.builder("ai.requests")
+                .description("AI service calls, including cache hits")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    private void countResponse(MessageType type, String source) {
+        Counter.builder("ai.responses")
+                .description("AI answers by where they came from")
+                .tag("type", type.name())
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+    
+    private static String outcome(Throwable e) {
+        if (e instanceof AITimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof AIUnavailableException) {
+            return "unavailable";
+        }
+        return "error";
+    }
+    
+    // The leader's call is bounded by its deadline, so waiting without a timeout here is safe
+    // A follower waits no longer than its own call could have taken: a bulkhead slot plus the deadline
+    private String join(MessageType type, CompletableFuture<String> flight) {
+        long maxWaitMillis = resiliencePolicy.bulkhead(type).getMaxWaitMillis() + resiliencePolicy.deadline(type).toMillis();
+        try {
+            return flight.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new AITimeoutException("Coalesced AI call did not complete within " + maxWaitMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced model response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 }
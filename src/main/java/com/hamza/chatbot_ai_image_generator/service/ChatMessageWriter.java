@@ -0,0 +1,372 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.TooManyRequestsException;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists completed chat messages. In write-behind mode callers hand messages to a bounded queue
+ * and a single writer thread inserts whatever has accumulated in one transaction, as one JDBC
+ * batch, so concurrent requests share a round trip and a commit. Callers still wait for their
+ * batch to commit, since the response carries the generated id. A full queue rejects with 429.
+ * On shutdown the queue is drained; messages that cannot be written are appended to a spool file
+ * and replayed on the next start.
+ */
+@Service
+public class ChatMessageWriter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+    
+    private final ChatMessageRepository chatMessageRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transaction;
+    private final ObjectMapper objectMapper;
+    private final UsageStatistics usageStatistics;
+    
+    @Value("${app.chat.persistence.write-behind.enabled:true}")
+    private boolean writeBehind;
+    
+    @Value("${app.chat.persistence.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${app.chat.persistence.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    @Value("${app.chat.persistence.enqueue-timeout-ms:500}")
+    private long enqueueTimeoutMs;
+    
+    @Value("${app.chat.persistence.await-timeout-ms:10000}")
+    private long awaitTimeoutMs;
+    
+    @Value("${app.chat.persistence.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+    
+    @Value("${app.chat.persistence.spool-file:data/chat-messages.spool}")
+    private String spoolFile;
+    
+    private BlockingQueue<PendingWrite> queue;
+    // Accepted and not yet committed, failed or spooled, including the batch being written
+    private final Set<PendingWrite> pending = ConcurrentHashMap.newKeySet();
+    private Thread writer;
+    private volatile boolean running;
+    
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    
+    @Autowired
+    public ChatMessageWriter(ChatMessageRepository chatMessageRepository,
+                             UserRepository userRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             UsageStatistics usageStatistics) {
+        super();
+        this.chatMessageRepository = chatMessageRepository;
+        this.userRepository = userRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.usageStatistics = usageStatistics;
+    }
+    
+    @PostConstruct
+    public void start() {
+        replaySpool();
+        if (!writeBehind) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::runWriter, "chat-message-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Chat message write-behind started (batch size {}, queue capacity {})", batchSize, queueCapacity);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(shutdownTimeoutMs);
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+        List<PendingWrite> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            spool(leftover);
+        }
+    }
+    
+    public ChatMessage save(ChatMessage message) {
+        if (!running) {
+            return saveNow(message);
+        }
+        
+        PendingWrite write = new PendingWrite(message, new CompletableFuture<>());
+        pending.add(write);
+        write.saved().whenComplete((saved, failure) -> pending.remove(write));
+        boolean queued = false;
+        try {
+            queued = queue.offer(write, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!queued) {
+                rejected.increment();
+                throw new TooManyRequestsException("Too many messages waiting to be saved, please retry later", 1);
+            }
+            // stop() may have drained the queue between the running check and the offer; if nobody took
+            // the write, nobody will, so save it here
+            if (!running && queue.remove(write)) {
+                ChatMessage saved = saveNow(message);
+                write.saved().complete(saved);
+                return saved;
+            }
+            return write.saved().get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while saving chat message", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for chat message to be saved", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+        } finally {
+            if (!queued) {
+                pending.remove(write);
+            }
+        }
+    }
+    
+    /**
+     * Waits until every message of the user accepted so far has been written or has failed, so a
+     * bulk delete that follows cannot be undone by a batch still on its way to the database.
+     */
+    public void awaitPending(Long userId) {
+        CompletableFuture<?>[] writes = pending.stream()
+                .filter(write -> userId.equals(write.message().getUser().getId()))
+                .map(PendingWrite::saved)
+                .toArray(CompletableFuture[]::new);
+        if (writes.length == 0) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(writes).get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // A failed write left nothing behind to delete
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queued chat messages", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for queued chat messages to be saved", e);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        return Map.of(
+                "writeBehind", running,
+                "queued", queue == null ? 0 : queue.size(),
+                "batches", batchCount,
+                "written", written.sum(),
+                "meanBatchSize", batchCount == 0 ? 0.0 : (double) written.sum() / batchCount,
+                "failed", failed.sum(),
+                "rejected", rejected.sum(),
+                "spooled", spooled.sum());
+    }
+    
+    // No linger: under load the queue fills while a batch is written, so batches grow with concurrency
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void flush(List<PendingWrite> batch) {
+        List<ChatMessage> messages = batch.stream().map(PendingWrite::message).toList();
+        try {
+            List<ChatMessage> saved = transaction.execute(status -> chatMessageRepository.saveAll(messages));
+            batches.increment();
+            written.add(saved.size());
+            for (int i = 0; i < batch.size(); i++) {
+                record(saved.get(i));
+                batch.get(i).saved().complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (!running) {
+                logger.error("Failed to save a batch of {} chat messages", batch.size(), e);
+                spool(batch);
+            } else if (batch.size() == 1) {
+                logger.error("Failed to save a chat message", e);
+                failed.increment();
+                batch.get(0).saved().completeExceptionally(e);
+            } else {
+                // Most likely one bad row; retry one at a time so the rest of the batch is not failed with it
+                logger.warn("Failed to save a batch of {} chat messages, retrying them one by one", batch.size(), e);
+                batch.forEach(this::flushOne);
+            }
+        }
+    }
+    
+    private void flushOne(PendingWrite write) {
+        // The rolled-back batch left sequence ids on the entities; without them they are inserted as new rows
+        write.message().setId(null);
+        try {
+            ChatMessage saved = transaction.execute(status -> chatMessageRepository.save(write.message()));
+            written.increment();
+            record(saved);
+            write.saved().complete(saved);
+        } catch (RuntimeException e) {
+            logger.error("Failed to save a chat message", e);
+            failed.increment();
+            write.saved().completeExceptionally(e);
+        }
+    }
+    
+    private ChatMessage saveNow(ChatMessage message) {
+        ChatMessage saved = transaction.execute(status -> chatMessageRepository.save(message));
+        record(saved);
+        return saved;
+    }
+    
+    private void record(ChatMessage message) {
+        usageStatistics.recordMessage(message.getMessageType(), message.getCreatedAt(), message.getResponseTimeMs());
+    }
+    
+    // Appended and forced to disk, so messages accepted before shutdown survive a database outage
+    private synchronized void spool(List<PendingWrite> writes) {
+        Path path = Paths.get(spoolFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            StringBuilder lines = new StringBuilder();
+            for (PendingWrite write : writes) {
+                lines.append(objectMapper.writeValueAsString(SpooledMessage.of(write.message()))).append('\n');
+            }
+            try (FileOutputStream out = new FileOutputStream(path.toFile(), true)) {
+                out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                out.getChannel().force(true);
+            }
+            spooled.add(writes.size());
+            logger.warn("Spooled {} unsaved chat messages to {}", writes.size(), path);
+            writes.forEach(write -> write.saved().completeExceptionally(
+                    new IllegalStateException("Chat message spooled for replay on next start")));
+        } catch (IOException e) {
+            logger.error("Failed to spool {} chat messages to {}; they are lost", writes.size(), path, e);
+            writes.forEach(write -> write.saved().completeExceptionally(e));
+        }
+    }
+    
+    private void replaySpool() {
+        Path path = Paths.get(spoolFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            List<SpooledMessage> spooledMessages = new ArrayList<>();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    spooledMessages.add(objectMapper.readValue(line, SpooledMessage.class));
+                }
+            }
+            int replayed = transaction.execute(status -> {
+                List<ChatMessage> messages = new ArrayList<>();
+                for (SpooledMessage spooledMessage : spooledMessages) {
+                    // Users deleted since (or an in-memory database that was reset) have nothing to attach to
+                    if (userRepository.existsById(spooledMessage.userId())) {
+                        messages.add(spooledMessage.toEntity(userRepository.getReferenceById(spooledMessage.userId())));
+                    }
+                }
+                List<ChatMessage> saved = chatMessageRepository.saveAll(messages);
+                saved.forEach(this::record);
+                return saved.size();
+            });
+            Files.delete(path);
+            logger.info("Replayed {} of {} spooled chat messages from {}", replayed, spooledMessages.size(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to replay spooled chat messages from {}; the file is left in place", path, e);
+        }
+    }
+    
+    private record PendingWrite(ChatMessage message, CompletableFuture<ChatMessage> saved) {
+    }
+    
+    private record SpooledMessage(Long userId,
+                                  String messageContent,
+                                  MessageType messageType,
+                                  String aiResponse,
+                                  String imageUrl,
+                                  String pdfUrl,
+                                  LocalDateTime createdAt,
+                                  Long responseTimeMs,
+                                  Long timeToFirstTokenMs) {
+        
+        static SpooledMessage of(ChatMessage message) {
+            return new SpooledMessage(message.getUser().getId(), message.getMessageContent(), message.getMessageType(),
+                    message.getAiResponse(), message.getImageUrl(), message.getPdfUrl(), message.getCreatedAt(),
+                    message.getResponseTimeMs(), message.getTimeToFirstTokenMs());
+        }
+        
+        ChatMessage toEntity(User user) {
+            ChatMessage message = new ChatMessage(user, messageContent, messageType);
+            message.setAiResponse(aiResponse);
+            message.setImageUrl(imageUrl);
+            message.setPdfUrl(pdfUrl);
+            message.setCreatedAt(createdAt);
+            message.setResponseTimeMs(responseTimeMs);
+            message.setTimeToFirstTokenMs(timeToFirstTokenMs);
+            return message;
+        }
+    }
+}
@@ -1,66 +1,126 @@
 package main.java.com.hamza.chatbot_ai_image_generator.service;
 
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatHistoryResponse;
 import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
 import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
 import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
 import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
 import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
 import main.java.com.hamza.chatbot_ai_image_generator.exception.ResourceNotFoundException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.TooManyRequestsException;
 import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
-import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageSummary;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.GeneratedFiles;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistograms;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Not transactional at class level: model calls can take seconds and must not hold a pooled
+ * JDBC connection. Users come from the user cache and completed messages are handed to
+ * {@link ChatMessageWriter}, so generation runs without a connection. Each database call is
+ * timed as {@code chat.repository}, tagged by operation.
+ */
 @Service
-@Transactional
 public class ChatService {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
     
     private final ChatMessageRepository chatMessageRepository;
-    private final UserRepository userRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final UserCache userCache;
     private final AIService aiService;
     private final ImageGenerationService imageGenerationService;
     private final PDFGenerationService pdfGenerationService;
+    private final ConversationMemoryService conversationMemoryService;
+    private final GeneratedFileCleaner generatedFileCleaner;
+    private final LatencyHistograms latencyHistograms;
+    private final UsageStatistics usageStatistics;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate writeTransaction;
+    
+    @Value("${app.chat.stream.timeout-ms:120000}")
+    private Long streamTimeoutMs;
+    
+    @Value("${app.chat.history.max-page-size:100}")
+    private int maxHistoryPageSize;
+    
+    @Value("${app.chat.history.preview-length:200}")
+    private int previewLength;
+    
+    @Value("${app.chat.clear.chunk-size:1000}")
+    private int clearChunkSize;
     
     @Autowired
     public ChatService(ChatMessageRepository chatMessageRepository,
-                      UserRepository userRepository,
+                      ChatMessageWriter chatMessageWriter,
+                      UserCache userCache,
                       AIService aiService,
                       ImageGenerationService imageGenerationService,
-                      PDFGenerationService pdfGenerationService) {
+                      PDFGenerationService pdfGenerationService,
+                      ConversationMemoryService conversationMemoryService,
+                      GeneratedFileCleaner generatedFileCleaner,
+                      LatencyHistograms latencyHistograms,
+                      UsageStatistics usageStatistics,
+                      MeterRegistry meterRegistry,
+                      PlatformTransactionManager transactionManager) {
         super();
         this.chatMessageRepository = chatMessageRepository;
-        this.userRepository = userRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.userCache = userCache;
         this.aiService = aiService;
         this.imageGenerationService = imageGenerationService;
         this.pdfGenerationService = pdfGenerationService;
+        this.conversationMemoryService = conversationMemoryService;
+        this.generatedFileCleaner = generatedFileCleaner;
+        this.latencyHistograms = latencyHistograms;
+        this.usageStatistics = usageStatistics;
+        this.meterRegistry = meterRegistry;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
     
     public ChatResponse processMessage(ChatRequest request, String username) {
         logger.info("Processing {} message for user: {}", request.getMessageType(), username);
         
-        User user = userRepository.findByUsername(username)
+        User user = userCache.getUser(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
         
         long startTime = System.currentTimeMillis();
         String messageId = UUID.randomUUID().toString();
+        ChatMessage.MessageType messageType = null;
         
         try {
+            messageType = ChatMessage.MessageType.valueOf(request.getMessageType());
             ChatMessage chatMessage = new ChatMessage();
             chatMessage.setUser(user);
-            chatMessage.setContent(request.getMessage());
-            chatMessage.setMessageType(ChatMessage.MessageType.valueOf(request.getMessageType()));
+            chatMessage.setMessageContent(request.getMessage());
+            chatMessage.setMessageType(messageType);
             chatMessage.setCreatedAt(LocalDateTime.now());
             
             String response = "";
@@ -69,7 +129,8 @@ public class ChatService {
             
             switch (request.getMessageType()) {
                 case "TEXT":
-                    response = aiService.generateTextResponse(request.getMessage());
+                    String context = conversationMemoryService.buildContext(user);
+                    response = aiService.generateTextResponse(request.getMessage(), context);
                     break;
                     
                 case "IMAGE_GENERATION":
@@ -91,62 +152,266 @@ public class ChatService {
             chatMessage.setPdfUrl(pdfUrl);
             
             long endTime = System.currentTimeMillis();
-            chatMessage.setResponseTime(endTime - startTime);
+            chatMessage.setResponseTimeMs(endTime - startTime);
+            
+            ChatMessage savedMessage = repositoryCall("save", () -> chatMessageWriter.save(chatMessage));
             
-            ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
+            if (savedMessage.getMessageType() == ChatMessage.MessageType.TEXT) {
+                conversationMemoryService.recordTurn(user, request.getMessage(), response);
+            }
             
-            logger.info("Message processed successfully in {}ms", chatMessage.getResponseTime());
+            logger.info("Message processed successfully in {}ms", chatMessage.getResponseTimeMs());
             
-            return new ChatResponse(
-                    savedMessage.getId().toString(),
-                    savedMessage.getContent(),
-                    savedMessage.getMessageType().toString(),
-                    savedMessage.getAiResponse(),
-                    savedMessage.getImageUrl(),
-                    savedMessage.getPdfUrl(),
-                    savedMessage.getCreatedAt(),
-                    savedMessage.getResponseTime()
-            );
+            return convertToChatResponse(savedMessage);
             
+        } catch (AIUnavailableException | TooManyRequestsException e) {
+            // Surfaces as 503/504/429 so clients back off instead of treating it as a bad request
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing message", e);
             throw new BusinessException("Failed to process message: " + e.getMessage(), e);
+        } finally {
+            // Failures and timeouts count too: they are usually the tail
+            if (messageType != null) {
+                latencyHistograms.recordMessage(messageType, System.currentTimeMillis() - startTime);
+            }
+        }
+    }
+    
+    public SseEmitter streamMessage(ChatRequest request, String username) {
+        logger.info("Streaming {} message for user: {}", request.getMessageType(), username);
+        
+        if (!"TEXT".equals(request.getMessageType())) {
+            throw new BusinessException("Streaming is only supported for TEXT messages");
+        }
+        
+        User user = userCache.getUser(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        long startTime = System.currentTimeMillis();
+        AtomicLong firstTokenTime = new AtomicLong(-1);
+        StringBuilder response = new StringBuilder();
+        
+        // Disposed however the emitter ends (done, client gone, timeout), so the model stops generating;
+        // a swap that is already disposed also disposes the subscription handed to it later
+        Disposable.Swap subscription = Disposables.swap();
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        
+        String context = conversationMemoryService.buildContext(user);
+        // Providers complete on their event loop; sends and the save block, so they run off it
+        subscription.update(aiService.streamTextResponse(request.getMessage(), context)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        token -> {
+                            firstTokenTime.compareAndSet(-1, System.currentTimeMillis());
+                            response.append(token);
+                            if (!sendEvent(emitter, "token", token)) {
+                                subscription.dispose();
+                            }
+                        },
+                        error -> {
+                            logger.error("Error streaming message", error);
+                            latencyHistograms.recordMessage(ChatMessage.MessageType.TEXT, System.currentTimeMillis() - startTime);
+                            emitter.completeWithError(error);
+                        },
+                        () -> {
+                            ChatMessage chatMessage = new ChatMessage(user, request.getMessage(), ChatMessage.MessageType.TEXT);
+                            chatMessage.setAiResponse(response.toString());
+                            chatMessage.setCreatedAt(LocalDateTime.now());
+                            
+                            long endTime = System.currentTimeMillis();
+                            chatMessage.setResponseTimeMs(endTime - startTime);
+                            if (firstTokenTime.get() >= 0) {
+                                chatMessage.setTimeToFirstTokenMs(firstTokenTime.get() - startTime);
+                            }
+                            
+                            ChatMessage savedMessage;
+                            try {
+                                savedMessage = repositoryCall("save", () -> chatMessageWriter.save(chatMessage));
+                            } catch (RuntimeException e) {
+                                logger.error("Error saving streamed message", e);
+                                emitter.completeWithError(e);
+                                return;
+                            } finally {
+                                // Same span as processMessage: request to saved answer, failures included
+                                latencyHistograms.recordMessage(ChatMessage.MessageType.TEXT, System.currentTimeMillis() - startTime);
+                            }
+                            
+                            conversationMemoryService.recordTurn(user, request.getMessage(), savedMessage.getAiResponse());
+                            
+                            logger.info("Message streamed successfully in {}ms (first token after {}ms)",
+                                    savedMessage.getResponseTimeMs(), savedMessage.getTimeToFirstTokenMs());
+                            
+                            if (sendEvent(emitter, "done", convertToChatResponse(savedMessage))) {
+                                emitter.complete();
+                            }
+                        }));
+        
+        return emitter;
+    }
+    
+    // Timed whether it returns or throws; saves include the wait for the write-behind batch to commit
+    private <T> T repositoryCall(String operation, Supplier<T> call) {
+        return Timer.builder("chat.repository")
+                .description("Chat message database calls")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(call);
+    }
+    
+    // False when the client went away; the container then reports the error to the emitter callbacks
+    private boolean sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Could not send '{}' event, client disconnected: {}", name, e.getMessage());
+            return false;
         }
     }
     
-    public List<ChatResponse> getChatHistory(String username, Pageable pageable) {
-        logger.info("Retrieving chat history for user: {}", username);
+    /**
+     * Newest-first history page. Without a cursor this is the first page; otherwise it continues
+     * strictly after the cursor, so the cost of a page does not depend on how deep it is. Previews
+     * read only the start of each AI response; full pages load the whole messages.
+     */
+    @Transactional(readOnly = true)
+    public ChatHistoryResponse getChatHistory(String username, String cursor, int size, boolean preview) {
+        logger.debug("Retrieving chat history for user: {}", username);
         
-        User user = userRepository.findByUsername(username)
+        User user = userCache.getUser(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
         
-        Page<ChatMessage> messages = chatMessageRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+        PageRequest limit = PageRequest.of(0, Math.max(1, Math.min(size, maxHistoryPageSize)));
+        HistoryCursor position = cursor == null || cursor.isBlank() ? null : HistoryCursor.decode(cursor);
         
-        return messages.stream()
-                .map(this::convertToChatResponse)
-                .collect(Collectors.toList());
+        List<ChatResponse> responses;
+        boolean hasNext;
+        HistoryCursor next = null;
+        if (preview) {
+            Slice<ChatMessageSummary> summaries = repositoryCall("history_preview", () -> position == null
+                    ? chatMessageRepository.findLatestSummariesByUserId(user.getId(), previewLength, limit)
+                    : chatMessageRepository.findSummariesByUserIdBefore(user.getId(), position.createdAt(), position.id(), previewLength, limit));
+            responses = summaries.stream().map(ChatService::convertToChatResponse).collect(Collectors.toList());
+            hasNext = summaries.hasNext();
+            if (hasNext) {
+                ChatMessageSummary last = summaries.getContent().get(summaries.getNumberOfElements() - 1);
+                next = new HistoryCursor(last.createdAt(), last.id());
+            }
+        } else {
+            Slice<ChatMessage> messages = repositoryCall("history_page", () -> position == null
+                    ? chatMessageRepository.findLatestByUserId(user.getId(), limit)
+                    : chatMessageRepository.findByUserIdBefore(user.getId(), position.createdAt(), position.id(), limit));
+            responses = messages.stream().map(ChatService::convertToChatResponse).collect(Collectors.toList());
+            hasNext = messages.hasNext();
+            if (hasNext) {
+                ChatMessage last = messages.getContent().get(messages.getNumberOfElements() - 1);
+                next = new HistoryCursor(last.getCreatedAt(), last.getId());
+            }
+        }
+        return new ChatHistoryResponse(responses, next == null ? null : next.encode(), hasNext);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ChatResponse> getRecentMessages(String username, int limit) {
+        return getChatHistory(username, null, limit, true).getMessages();
     }
     
-    public void clearChatHistory(String username) {
+    // Full response of one message, for a client expanding a preview
+    @Transactional(readOnly = true)
+    public ChatResponse getMessage(String username, Long messageId) {
+        User user = userCache.getUser(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        
+        return repositoryCall("get_message", () -> chatMessageRepository.findByIdAndUserId(messageId, user.getId()))
+                .map(ChatService::convertToChatResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Message not found: " + messageId));
+    }
+    
+    /**
+     * Deletes the user's messages without loading them. Up to one chunk goes in a single DELETE;
+     * longer histories are deleted a chunk per transaction, oldest first, so no transaction holds
+     * locks on the whole history. Messages still queued for write-behind are saved first, so none
+     * reappears after the delete. Usage statistics drop each committed chunk, and generated files
+     * are removed in the background afterwards.
+     */
+    public int clearChatHistory(String username) {
         logger.info("Clearing chat history for user: {}", username);
         
-        User user = userRepository.findByUsername(username)
+        User user = userCache.getUser(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        Long userId = user.getId();
+        // Messages still queued for write-behind would otherwise be inserted after the delete
+        chatMessageWriter.awaitPending(userId);
         
-        chatMessageRepository.deleteByUser(user);
-        logger.info("Chat history cleared for user: {}", username);
+        int deleted;
+        if (repositoryCall("count", () -> chatMessageRepository.countByUserId(userId)) <= clearChunkSize) {
+            List<GeneratedFiles> files = new ArrayList<>();
+            List<Object[]> usage = new ArrayList<>();
+            deleted = repositoryCall("delete_all", () -> writeTransaction.execute(status -> {
+                files.addAll(chatMessageRepository.findAllGeneratedFilesByUserId(userId));
+                usage.addAll(chatMessageRepository.findUsageByUserId(userId));
+                return chatMessageRepository.deleteAllByUserId(userId);
+            }));
+            usageStatistics.recordMessagesDeleted(usage);
+            generatedFileCleaner.deleteAsync(files);
+        } else {
+            deleted = 0;
+            PageRequest chunk = PageRequest.of(0, clearChunkSize);
+            List<GeneratedFiles> rows;
+            do {
+                List<Object[]> usage = new ArrayList<>();
+                rows = repositoryCall("delete_chunk", () -> writeTransaction.execute(status -> {
+                    List<GeneratedFiles> batch = chatMessageRepository.findGeneratedFilesByUserId(userId, chunk);
+                    if (!batch.isEmpty()) {
+                        List<Long> ids = batch.stream().map(GeneratedFiles::id).toList();
+                        usage.addAll(chatMessageRepository.findUsageByIdIn(ids));
+                        chatMessageRepository.deleteAllByIdIn(ids);
+                    }
+                    return batch;
+                }));
+                usageStatistics.recordMessagesDeleted(usage);
+                deleted += rows.size();
+                generatedFileCleaner.deleteAsync(rows);
+            } while (rows.size() == clearChunkSize);
+        }
+        
+        conversationMemoryService.forget(username);
+        logger.info("Chat history cleared for user: {} ({} messages)", username, deleted);
+        return deleted;
     }
     
-    private ChatResponse convertToChatResponse(ChatMessage message) {
-        return new ChatResponse(
+    static ChatResponse convertToChatResponse(ChatMessage message) {
+        ChatResponse response = new ChatResponse(
                 message.getId().toString(),
-                message.getContent(),
+                message.getMessageContent(),
                 message.getMessageType().toString(),
                 message.getAiResponse(),
                 message.getImageUrl(),
                 message.getPdfUrl(),
                 message.getCreatedAt(),
-                message.getResponseTime()
+                message.getResponseTimeMs()
+        );
+        response.setTimeToFirstToken(message.getTimeToFirstTokenMs());
+        return response;
+    }
+    
+    static ChatResponse convertToChatResponse(ChatMessageSummary summary) {
+        ChatResponse response = new ChatResponse(
+                summary.id().toString(),
+                summary.messageContent(),
+                summary.messageType().toString(),
+                summary.responsePreview(),
+                summary.imageUrl(),
+                summary.pdfUrl(),
+                summary.createdAt(),
+                summary.responseTimeMs()
         );
+        response.setTimeToFirstToken(summary.timeToFirstTokenMs());
+        response.setResponseTruncated(summary.isTruncated());
+        return response;
     }
 }
@@ -0,0 +1,284 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conversation memory for TEXT chats: the last N turns are kept verbatim and older turns are
+ * folded into a rolling summary in the background, one batch at a time. The context handed to
+ * the model is capped by a token budget so prompt size stays flat however long the chat runs.
+ * Summary calls are bounded too: each folds at most {@code summary-batch-turns} turns, and while
+ * summaries keep failing only the newest {@code max-pending-turns} evicted turns are kept.
+ */
+@Service
+public class ConversationMemoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemoryService.class);
+    
+    // Rough English average; good enough to bound prompt size without a tokenizer
+    private static final int CHARS_PER_TOKEN = 4;
+    
+    private final AIService aiService;
+    private final ChatMessageRepository chatMessageRepository;
+    private final ThreadPoolTaskExecutor memoryExecutor;
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    
+    @Value("${app.ai.memory.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.ai.memory.recent-turns:6}")
+    private int recentTurns;
+    
+    @Value("${app.ai.memory.max-context-tokens:1500}")
+    private int maxContextTokens;
+    
+    @Value("${app.ai.memory.summary-max-tokens:400}")
+    private int summaryMaxTokens;
+    
+    @Value("${app.ai.memory.summary-batch-turns:8}")
+    private int summaryBatchTurns;
+    
+    @Value("${app.ai.memory.max-pending-turns:24}")
+    private int maxPendingTurns;
+    
+    @Value("${app.ai.memory.idle-minutes:60}")
+    private long idleMinutes;
+    
+    @Autowired
+    public ConversationMemoryService(AIService aiService,
+                                     ChatMessageRepository chatMessageRepository,
+                                     @Qualifier("memoryExecutor") ThreadPoolTaskExecutor memoryExecutor) {
+        super();
+        this.aiService = aiService;
+        this.chatMessageRepository = chatMessageRepository;
+        this.memoryExecutor = memoryExecutor;
+    }
+    
+    /**
+     * Renders the summary and as many of the most recent turns as fit in the token budget,
+     * or an empty string when there is nothing to remember.
+     */
+    public String buildContext(User user) {
+        if (!enabled) {
+            return "";
+        }
+        
+        Conversation conversation = conversationFor(user);
+        String summary;
+        List<Turn> turns;
+        conversation.lock.lock();
+        try {
+            summary = conversation.summary;
+            // Turns waiting to be summarized are still known verbatim
+            turns = new ArrayList<>(conversation.pending);
+            turns.addAll(conversation.recent);
+        } finally {
+            conversation.lock.unlock();
+        }
+        
+        int budget = maxContextTokens;
+        String boundedSummary = truncateToTokens(summary, Math.min(summaryMaxTokens, budget));
+        budget -= estimateTokens(boundedSummary);
+        
+        Deque<String> included = new ArrayDeque<>();
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            String rendered = turns.get(i).render();
+            int cost = estimateTokens(rendered);
+            if (cost > budget) {
+                break;
+            }
+            included.addFirst(rendered);
+            budget -= cost;
+        }
+        
+        if (boundedSummary.isEmpty() && included.isEmpty()) {
+            return "";
+        }
+        
+        StringBuilder context = new StringBuilder();
+        if (!boundedSummary.isEmpty()) {
+            context.append("Summary of the earlier conversation: ").append(boundedSummary).append("\n\n");
+        }
+        if (!included.isEmpty()) {
+            context.append("Recent conversation:\n");
+            included.forEach(context::append);
+            context.append('\n');
+        }
+        return context.toString();
+    }
+    
+    public void recordTurn(User user, String userMessage, String aiResponse) {
+        if (!enabled) {
+            return;
+        }
+        
+        Conversation conversation = conversationFor(user);
+        boolean evicted = false;
+        boolean dropped = false;
+        conversation.lock.lock();
+        try {
+            conversation.recent.addLast(new Turn(userMessage, aiResponse));
+            while (conversation.recent.size() > recentTurns) {
+                conversation.pending.addLast(conversation.recent.removeFirst());
+                evicted = true;
+            }
+            // Summaries are failing or behind; the oldest turns are given up rather than sent later in one huge prompt
+            while (conversation.pending.size() > maxPendingTurns) {
+                conversation.pending.removeFirst();
+                dropped = true;
+            }
+            conversation.lastAccess = System.currentTimeMillis();
+        } finally {
+            conversation.lock.unlock();
+        }
+        
+        if (dropped) {
+            logger.debug("Conversation summary is behind for {}, dropped the oldest unsummarized turns", user.getUsername());
+        }
+        if (evicted) {
+            scheduleSummary(conversation);
+        }
+    }
+    
+    public void forget(String username) {
+        conversations.remove(username);
+    }
+    
+    // Seeded under the conversation lock, so nobody reads the window before the history is loaded
+    private Conversation conversationFor(User user) {
+        Conversation conversation = conversations.computeIfAbsent(user.getUsername(), key -> new Conversation());
+        if (!conversation.seeded) {
+            conversation.lock.lock();
+            try {
+                if (!conversation.seeded) {
+                    seed(conversation, user);
+                    conversation.seeded = true;
+                }
+            } finally {
+                conversation.lock.unlock();
+            }
+        }
+        conversation.lastAccess = System.currentTimeMillis();
+        return conversation;
+    }
+    
+    // After a restart, rebuild the verbatim window from the stored history; caller holds the lock
+    private void seed(Conversation conversation, User user) {
+        List<ChatMessage> latest = chatMessageRepository.findRecentMessagesByUserId(user.getId(), PageRequest.of(0, recentTurns));
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            ChatMessage message = latest.get(i);
+            if (message.getMessageType() == ChatMessage.MessageType.TEXT && message.getAiResponse() != null) {
+                conversation.recent.addLast(new Turn(message.getMessageContent(), message.getAiResponse()));
+            }
+        }
+    }
+    
+    private void scheduleSummary(Conversation conversation) {
+        if (!conversation.summarizing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            memoryExecutor.execute(() -> foldPendingTurns(conversation));
+        } catch (TaskRejectedException e) {
+            // Pending turns stay verbatim and are folded with the next eviction
+            conversation.summarizing.set(false);
+        }
+    }
+    
+    private void foldPendingTurns(Conversation conversation) {
+        try {
+            while (true) {
+                String summary;
+                List<Turn> batch;
+                conversation.lock.lock();
+                try {
+                    if (conversation.pending.isEmpty()) {
+                        return;
+                    }
+                    summary = conversation.summary;
+                    batch = conversation.pending.stream().limit(summaryBatchTurns).toList();
+                } finally {
+                    conversation.lock.unlock();
+                }
+                
+                StringBuilder turns = new StringBuilder();
+                batch.forEach(turn -> turns.append(turn.render()));
+                int maxWords = summaryMaxTokens * 3 / 4;
+                String updated = aiService.summarizeConversation(summary,
+                        truncateToTokens(turns.toString(), maxContextTokens), maxWords);
+                
+                conversation.lock.lock();
+                try {
+                    conversation.summary = truncateToTokens(updated == null ? summary : updated.trim(), summaryMaxTokens);
+                    // By identity: recordTurn may have dropped some of the batch while it was being summarized
+                    batch.forEach(conversation.pending::remove);
+                } finally {
+                    conversation.lock.unlock();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to update conversation summary: {}", e.getMessage());
+        } finally {
+            conversation.summarizing.set(false);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.ai.memory.cleanup-interval-ms:300000}")
+    public void purgeIdleConversations() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        conversations.values().removeIf(conversation -> conversation.lastAccess < cutoff && !conversation.summarizing.get());
+    }
+    
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+    
+    private static String truncateToTokens(String text, int maxTokens) {
+        int maxChars = Math.max(0, maxTokens) * CHARS_PER_TOKEN;
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+    
+    private static final class Conversation {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<Turn> recent = new ArrayDeque<>();
+        private final Deque<Turn> pending = new ArrayDeque<>();
+        private volatile boolean seeded;
+        private final AtomicBoolean summarizing = new AtomicBoolean();
+        private String summary = "";
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+    
+    private static final class Turn {
+        private final String userMessage;
+        private final String aiResponse;
+        
+        private Turn(String userMessage, String aiResponse) {
+            this.userMessage = userMessage;
+            this.aiResponse = aiResponse;
+        }
+        
+        private String render() {
+            return "User: " + userMessage + "\nAssistant: " + aiResponse + "\n";
+        }
+    }
+}
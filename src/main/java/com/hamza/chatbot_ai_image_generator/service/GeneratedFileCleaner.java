@@ -0,0 +1,80 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.repository.GeneratedFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Deletes the image and PDF files of deleted chat messages in the background, so clearing a long
+ * history does not wait on the file system.
+ */
+@Service
+public class GeneratedFileCleaner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GeneratedFileCleaner.class);
+    
+    private final ThreadPoolTaskExecutor fileCleanupExecutor;
+    
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+    
+    @Autowired
+    public GeneratedFileCleaner(@Qualifier("fileCleanupExecutor") ThreadPoolTaskExecutor fileCleanupExecutor) {
+        super();
+        this.fileCleanupExecutor = fileCleanupExecutor;
+    }
+    
+    public void deleteAsync(List<GeneratedFiles> rows) {
+        List<Path> files = new ArrayList<>();
+        for (GeneratedFiles row : rows) {
+            addFile(files, row.imageUrl(), "/api/images/", "images");
+            addFile(files, row.pdfUrl(), "/api/pdfs/", "pdfs");
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        try {
+            fileCleanupExecutor.execute(() -> files.forEach(this::delete));
+        } catch (RejectedExecutionException e) {
+            // Full queue or shutting down: the rows are gone either way, so the files are left as orphans rather than failing the request
+            logger.warn("File cleanup queue is full, leaving {} generated files on disk", files.size());
+        }
+    }
+    
+    // Only plain file names under the expected folder; anything else in the URL is ignored
+    private void addFile(List<Path> files, String url, String marker, String folder) {
+        if (url == null) {
+            return;
+        }
+        int index = url.lastIndexOf(marker);
+        if (index < 0) {
+            return;
+        }
+        String fileName = url.substring(index + marker.length());
+        if (fileName.isEmpty() || fileName.contains("/") || fileName.contains("\\") || fileName.contains("..")) {
+            return;
+        }
+        files.add(Paths.get(uploadDir, folder, fileName));
+    }
+    
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete generated file {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.GenerationJobResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory state of one asynchronous image/PDF generation job, while it runs and for a while after;
+ * every status change is also persisted as a {@code GenerationJobRecord}.
+ */
+public class GenerationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id;
+    private final String username;
+    private final String messageType;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile ChatResponse result;
+    private volatile String error;
+    private volatile LocalDateTime completedAt;
+    
+    public GenerationJob(String id, String username, String messageType) {
+        super();
+        this.id = id;
+        this.username = username;
+        this.messageType = messageType;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getMessageType() {
+        return messageType;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public ChatResponse getResult() {
+        return result;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+    
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+    
+    void complete(ChatResponse result) {
+        this.result = result;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+    
+    void fail(String error) {
+        this.error = error;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+    
+    void addSubscriber(SseEmitter emitter) {
+        subscribers.add(emitter);
+    }
+    
+    /**
+     * Removes a subscriber; only the caller that actually removed it may notify it,
+     * so a finishing job and a late subscriber never both deliver the final event.
+     */
+    boolean claimSubscriber(SseEmitter emitter) {
+        return subscribers.remove(emitter);
+    }
+    
+    List<SseEmitter> getSubscribers() {
+        return subscribers;
+    }
+    
+    public GenerationJobResponse toResponse() {
+        return new GenerationJobResponse(id, status.name(), messageType, result, error, submittedAt, completedAt);
+    }
+}
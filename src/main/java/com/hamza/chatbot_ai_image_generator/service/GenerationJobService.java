@@ -0,0 +1,195 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.GenerationJobResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.GenerationJobRecord;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.ResourceNotFoundException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.TooManyRequestsException;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.GenerationJobRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs image/PDF generations in the background. Live jobs are tracked in memory, where completion
+ * events are delivered to SSE subscribers; each status change is also written to the database, so
+ * a job can still be polled after it has been purged from memory or the application restarted.
+ * Jobs a restart cut off are marked failed at startup. On a multi-node deployment that would also
+ * fail jobs still running on other nodes, so it assumes a single node.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+    
+    private final ChatService chatService;
+    private final GenerationJobRepository jobRepository;
+    private final ThreadPoolTaskExecutor generationExecutor;
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    
+    @Value("${app.generation.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+    
+    @Value("${app.generation.jobs.subscribe-timeout-ms:300000}")
+    private Long subscribeTimeoutMs;
+    
+    @Autowired
+    public GenerationJobService(ChatService chatService,
+                                GenerationJobRepository jobRepository,
+                                @Qualifier("generationExecutor") ThreadPoolTaskExecutor generationExecutor) {
+        super();
+        this.chatService = chatService;
+        this.jobRepository = jobRepository;
+        this.generationExecutor = generationExecutor;
+    }
+    
+    @PostConstruct
+    public void failInterruptedJobs() {
+        int interrupted = jobRepository.failUnfinished("Interrupted by a server restart", LocalDateTime.now());
+        if (interrupted > 0) {
+            logger.warn("Marked {} generation jobs interrupted by the last shutdown as failed", interrupted);
+        }
+    }
+    
+    public GenerationJobResponse submit(ChatRequest request, String username) {
+        String messageType = request.getMessageType();
+        if (!"IMAGE_GENERATION".equals(messageType) && !"PDF_GENERATION".equals(messageType)) {
+            throw new BusinessException("Async jobs are only supported for IMAGE_GENERATION and PDF_GENERATION messages");
+        }
+        
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), username, messageType);
+        jobRepository.save(toRecord(job));
+        jobs.put(job.getId(), job);
+        
+        try {
+            generationExecutor.execute(() -> run(job, request));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            jobRepository.deleteById(job.getId());
+            throw new TooManyRequestsException("Generation queue is full, please retry later", 5, e);
+        }
+        
+        logger.info("Queued {} job {} for user: {}", messageType, job.getId(), username);
+        return job.toResponse();
+    }
+    
+    public GenerationJobResponse getJob(String jobId, String username) {
+        GenerationJob job = jobs.get(jobId);
+        if (job != null && job.getUsername().equals(username)) {
+            return job.toResponse();
+        }
+        return toResponse(findRecord(jobId, username));
+    }
+    
+    public SseEmitter subscribe(String jobId, String username) {
+        SseEmitter emitter = new SseEmitter(subscribeTimeoutMs);
+        GenerationJob job = jobs.get(jobId);
+        if (job == null || !job.getUsername().equals(username)) {
+            // No longer live, so the persisted status is final
+            GenerationJobResponse finished = toResponse(findRecord(jobId, username));
+            notify(emitter, finished);
+            return emitter;
+        }
+        
+        emitter.onTimeout(() -> job.claimSubscriber(emitter));
+        emitter.onError(e -> job.claimSubscriber(emitter));
+        
+        job.addSubscriber(emitter);
+        // The job may have finished while we were registering
+        if (job.isFinished() && job.claimSubscriber(emitter)) {
+            notify(emitter, job.toResponse());
+        }
+        return emitter;
+    }
+    
+    private void run(GenerationJob job, ChatRequest request) {
+        job.markRunning();
+        persist(job);
+        try {
+            ChatResponse result = chatService.processMessage(request, job.getUsername());
+            job.complete(result);
+            logger.info("Job {} completed", job.getId());
+        } catch (Exception e) {
+            logger.error("Job {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        }
+        persist(job);
+        
+        for (SseEmitter emitter : job.getSubscribers()) {
+            if (job.claimSubscriber(emitter)) {
+                notify(emitter, job.toResponse());
+            }
+        }
+    }
+    
+    // The in-memory job stays authoritative while it is live, so a failed write only costs the fallback
+    private void persist(GenerationJob job) {
+        try {
+            jobRepository.save(toRecord(job));
+        } catch (Exception e) {
+            logger.warn("Could not persist the state of job {}", job.getId(), e);
+        }
+    }
+    
+    private void notify(SseEmitter emitter, GenerationJobResponse status) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+    
+    private GenerationJobRecord findRecord(String jobId, String username) {
+        return jobRepository.findByIdAndUsername(jobId, username)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found: " + jobId));
+    }
+    
+    private static GenerationJobRecord toRecord(GenerationJob job) {
+        ChatResponse result = job.getResult();
+        Long chatMessageId = result == null || result.getId() == null ? null : Long.valueOf(result.getId());
+        String error = job.getError();
+        if (error != null && error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        return new GenerationJobRecord(job.getId(), job.getUsername(), job.getMessageType(), job.getStatus().name(),
+                chatMessageId, error, job.getSubmittedAt(), job.getCompletedAt());
+    }
+    
+    // The result is the saved chat message; it is gone if the user has cleared their history since
+    private GenerationJobResponse toResponse(GenerationJobRecord record) {
+        ChatResponse result = null;
+        if (record.getChatMessageId() != null) {
+            try {
+                result = chatService.getMessage(record.getUsername(), record.getChatMessageId());
+            } catch (ResourceNotFoundException e) {
+                logger.debug("Result of job {} no longer exists", record.getId());
+            }
+        }
+        return new GenerationJobResponse(record.getId(), record.getStatus(), record.getMessageType(), result,
+                record.getError(), record.getSubmittedAt(), record.getCompletedAt());
+    }
+    
+    @Scheduled(fixedDelayString = "${app.generation.jobs.cleanup-interval-ms:60000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getCompletedAt().isBefore(cutoff));
+        jobRepository.deleteFinishedBefore(cutoff);
+    }
+}
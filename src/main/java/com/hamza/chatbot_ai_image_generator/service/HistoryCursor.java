@@ -0,0 +1,31 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's history: the (createdAt, id) of the last message returned. Clients get it
+ * as an opaque URL-safe string and hand it back unchanged to fetch the next, older page.
+ */
+public record HistoryCursor(LocalDateTime createdAt, Long id) {
+    
+    public String encode() {
+        String raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException("Invalid history cursor");
+        }
+    }
+}
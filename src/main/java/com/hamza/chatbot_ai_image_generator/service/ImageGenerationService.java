@@ -1,5 +1,9 @@
 package main.java.com.hamza.chatbot_ai_image_generator.service;
 
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -16,6 +20,7 @@ import java.util.UUID;
 public class ImageGenerationService {
     
     private final AIService aiService;
+    private final MeterRegistry meterRegistry;
     
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
@@ -24,26 +29,54 @@ public class ImageGenerationService {
     private String baseUrl;
     
     @Autowired
-    public ImageGenerationService(AIService aiService) {
+    public ImageGenerationService(AIService aiService, MeterRegistry meterRegistry) {
         super();
         this.aiService = aiService;
+        this.meterRegistry = meterRegistry;
     }
     
+    // Each stage is timed as generation.stage{generator=image}; a failure counts against the stage it happened in
     public String generateImageFromDescription(String description) {
+        String stage = "prompt";
         try {
             // Generate a detailed prompt using AI
+            Timer.Sample sample = Timer.start(meterRegistry);
             String imagePrompt = aiService.generateImagePrompt(description);
+            sample = endStage(sample, stage);
             
             // For demo purposes, we'll create a placeholder image
             // In production, you would integrate with an actual image generation API
             // like DALL-E, Midjourney, or Stable Diffusion
-            return createPlaceholderImage(imagePrompt);
+            stage = "write";
+            String url = createPlaceholderImage(imagePrompt);
+            endStage(sample, stage);
+            return url;
             
+        } catch (AIUnavailableException e) {
+            stageFailed(stage);
+            throw e;
         } catch (Exception e) {
+            stageFailed(stage);
             throw new RuntimeException("Failed to generate image: " + e.getMessage(), e);
         }
     }
     
+    private Timer.Sample endStage(Timer.Sample sample, String stage) {
+        sample.stop(Timer.builder("generation.stage")
+                .tag("generator", "image")
+                .tag("stage", stage)
+                .register(meterRegistry));
+        return Timer.start(meterRegistry);
+    }
+    
+    private void stageFailed(String stage) {
+        Counter.builder("generation.failures")
+                .tag("generator", "image")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+    
     private String createPlaceholderImage(String prompt) {
         try {
             // Create upload directory if it doesn't exist
@@ -1,31 +1,62 @@
 package main.java.com.hamza.chatbot_ai_image_generator.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
     
-    public JwtService() {
-        super();
-    }
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    // iat has second precision; this carries the issue time to the millisecond for revocation checks
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
+    private final Long expiration;
+    private final Key signInKey;
+    private final JwtParser parser;
     
-    @Value("${jwt.secret}")
-    private String secret;
+    // Verified claims keyed by the SHA-256 of the token, so the bearer token itself is never retained
+    private final Map<TokenHash, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    // The same tokens ordered by expiry, so eviction takes the head instead of scanning the cache
+    private final ConcurrentSkipListSet<Expiry> byExpiry = new ConcurrentSkipListSet<>(Expiry.ORDER);
+    private final int maxCachedTokens;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
     
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    @Autowired
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration}") Long expiration,
+                      @Value("${app.jwt.cache.max-entries:10000}") int maxCachedTokens) {
+        super();
+        this.expiration = expiration;
+        this.signInKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.maxCachedTokens = maxCachedTokens;
+    }
     
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -35,44 +66,140 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
     
+    /**
+     * Issue time to the millisecond, falling back to the second-precision iat claim for tokens
+     * issued without {@link #ISSUED_AT_MILLIS_CLAIM}.
+     */
+    public Date extractIssuedAt(Claims claims) {
+        Number issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Number.class);
+        return issuedAtMillis != null ? new Date(issuedAtMillis.longValue()) : claims.getIssuedAt();
+    }
+    
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
     
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token signature and expiry and returns its claims. A token is verified at most
+     * once; later calls are served from the cache until the token expires.
+     */
+    public Claims parseToken(String token) {
+        TokenHash hash = TokenHash.of(token);
+        VerifiedToken cached = verifiedTokens.get(hash);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                cacheHits.increment();
+                return cached.claims();
+            }
+            if (verifiedTokens.remove(hash, cached)) {
+                byExpiry.remove(new Expiry(cached.expiresAt(), hash));
+            }
+        }
+        cacheMisses.increment();
+        
+        // Throws for a bad signature, a malformed token or an expired one
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (maxCachedTokens > 0 && claims.getExpiration() != null) {
+            long expiresAt = claims.getExpiration().getTime();
+            makeRoom();
+            verifiedTokens.put(hash, new VerifiedToken(claims, expiresAt));
+            byExpiry.add(new Expiry(expiresAt, hash));
+        }
+        return claims;
     }
     
-    private Key getSignInKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String generateToken(String username) {
+        Map<String, Object> claims = new HashMap<>();
+        return createToken(claims, username);
     }
     
-    public String generateToken(String username) {
+    /**
+     * Token that also carries the user id and authorities, so requests can be authenticated from
+     * the token alone when self-contained claims are enabled.
+     */
+    public String generateToken(Long userId, String username, Collection<? extends GrantedAuthority> authorities) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(ROLES_CLAIM, authorities.stream().map(GrantedAuthority::getAuthority).toList());
         return createToken(claims, username);
     }
     
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MILLIS_CLAIM, now);
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(parseToken(token), userDetails);
+    }
+    
+    public Boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
+    }
+    
+    public Map<String, Object> getTokenCacheStats() {
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        return Map.of(
+                "size", verifiedTokens.size(),
+                "maxEntries", maxCachedTokens,
+                "hits", hits,
+                "misses", misses,
+                "hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+    }
+    
+    // Drop expired tokens from the head of the expiry order; if the cache is still full, keep taking
+    // the head, which is the token closest to expiring. Each call costs O(log n) per token dropped.
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        Expiry soonest;
+        while ((soonest = byExpiry.pollFirst()) != null) {
+            if (soonest.expiresAt() > now && verifiedTokens.size() < maxCachedTokens) {
+                byExpiry.add(soonest);
+                return;
+            }
+            verifiedTokens.remove(soonest.hash());
+        }
+    }
+    
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+    
+    // A token's expiry never changes, so (expiresAt, hash) identifies its single index entry
+    private record Expiry(long expiresAt, TokenHash hash) {
+        
+        static final Comparator<Expiry> ORDER = Comparator.comparingLong(Expiry::expiresAt)
+                .thenComparingLong(expiry -> expiry.hash().high())
+                .thenComparingLong(expiry -> expiry.hash().low());
+    }
+    
+    private record TokenHash(long high, long low) {
+        
+        static TokenHash of(String token) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+                long high = 0;
+                long low = 0;
+                for (int i = 0; i < 8; i++) {
+                    high = (high << 8) | (digest[i] & 0xFF);
+                    low = (low << 8) | (digest[i + 8] & 0xFF);
+                }
+                return new TokenHash(high, low);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
     }
 }
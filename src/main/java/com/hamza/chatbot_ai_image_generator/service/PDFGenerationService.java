@@ -1,6 +1,10 @@
 package main.java.com.hamza.chatbot_ai_image_generator.service;
 
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
 import com.itextpdf.html2pdf.HtmlConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -18,6 +22,7 @@ import java.util.UUID;
 public class PDFGenerationService {
     
     private final AIService aiService;
+    private final MeterRegistry meterRegistry;
     
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
@@ -26,27 +31,57 @@ public class PDFGenerationService {
     private String baseUrl;
     
     @Autowired
-    public PDFGenerationService(AIService aiService) {
+    public PDFGenerationService(AIService aiService, MeterRegistry meterRegistry) {
         super();
         this.aiService = aiService;
+        this.meterRegistry = meterRegistry;
     }
     
+    // Each stage is timed as generation.stage{generator=pdf}; a failure counts against the stage it happened in
     public String generatePDFFromRequest(String userRequest) {
+        String stage = "content";
         try {
             // Generate content using AI
+            Timer.Sample sample = Timer.start(meterRegistry);
             String aiContent = aiService.generatePdfContent(userRequest);
+            sample = endStage(sample, stage);
             
             // Create PDF
+            stage = "render";
             byte[] pdfBytes = createPDF(aiContent, userRequest);
+            sample = endStage(sample, stage);
             
             // Save PDF and return URL
-            return savePDFAndGetUrl(pdfBytes);
+            stage = "write";
+            String url = savePDFAndGetUrl(pdfBytes);
+            endStage(sample, stage);
+            return url;
             
+        } catch (AIUnavailableException e) {
+            stageFailed(stage);
+            throw e;
         } catch (Exception e) {
+            stageFailed(stage);
             throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
         }
     }
     
+    private Timer.Sample endStage(Timer.Sample sample, String stage) {
+        sample.stop(Timer.builder("generation.stage")
+                .tag("generator", "pdf")
+                .tag("stage", stage)
+                .register(meterRegistry));
+        return Timer.start(meterRegistry);
+    }
+    
+    private void stageFailed(String stage) {
+        Counter.builder("generation.failures")
+                .tag("generator", "pdf")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+    
     private byte[] createPDF(String content, String originalRequest) {
         try {
             // Parse the AI content and convert to HTML
@@ -63,7 +98,7 @@ public class PDFGenerationService {
         }
     }
     
-    private String convertToHTML(String content, String originalRequest) {
+    String convertToHTML(String content, String originalRequest) {
         // Parse the content and create HTML
         String title = extractTitle(content);
         String body = formatContent(content);
@@ -106,7 +141,7 @@ public class PDFGenerationService {
         return "Generated Document";
     }
     
-    private String formatContent(String content) {
+    String formatContent(String content) {
         String[] lines = content.split("\n");
         StringBuilder html = new StringBuilder();
         boolean inSection = false;
@@ -137,7 +172,7 @@ public class PDFGenerationService {
         return html.toString();
     }
     
-    private String escapeHtml(String text) {
+    String escapeHtml(String text) {
         return text.replace("&", "&amp;")
                   .replace("<", "&lt;")
                   .replace(">", "&gt;")
@@ -0,0 +1,115 @@
+package main.java.com.hamza.chatbot_ai_image_generator.stats;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelProvider;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sliding-window latency percentiles per message type (end to end, recorded by the chat service)
+ * and per model provider (the model call alone, recorded by the router). Served to the admin API
+ * and bound as Micrometer gauges tagged by type or provider and quantile, so tails can be alerted on.
+ */
+@Component
+public class LatencyHistograms implements MeterBinder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50Ms", "p90Ms", "p99Ms", "p999Ms"};
+    private static final String[] QUANTILE_TAGS = {"0.5", "0.9", "0.99", "0.999"};
+    
+    private final ModelRouter modelRouter;
+    private final Map<MessageType, RollingLatencyHistogram> byType = new EnumMap<>(MessageType.class);
+    
+    @Autowired
+    public LatencyHistograms(ModelRouter modelRouter,
+                             @Value("${app.stats.latency.window-seconds:300}") long windowSeconds,
+                             @Value("${app.stats.latency.slots:5}") int slots) {
+        super();
+        this.modelRouter = modelRouter;
+        for (MessageType type : MessageType.values()) {
+            byType.put(type, new RollingLatencyHistogram(windowSeconds * 1000, slots));
+        }
+    }
+    
+    public void recordMessage(MessageType type, long latencyMillis) {
+        byType.get(type).record(latencyMillis);
+    }
+    
+    public RollingLatencyHistogram getMessageLatency(MessageType type) {
+        return byType.get(type);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowSeconds", byType.get(MessageType.TEXT).getWindowMillis() / 1000);
+        
+        Map<String, Object> types = new LinkedHashMap<>();
+        LatencyHistogram allTypes = new LatencyHistogram();
+        for (Map.Entry<MessageType, RollingLatencyHistogram> entry : byType.entrySet()) {
+            LatencyHistogram window = entry.getValue().snapshot();
+            allTypes.merge(window);
+            types.put(entry.getKey().name(), summarize(window, entry.getValue().getTotalCount()));
+        }
+        stats.put("allTypes", summarize(allTypes, -1));
+        stats.put("byType", types);
+        
+        Map<String, Object> providers = new LinkedHashMap<>();
+        for (ModelProvider provider : modelRouter.getProviders()) {
+            RollingLatencyHistogram latency = provider.getLatency();
+            providers.put(provider.getName(), summarize(latency.snapshot(), latency.getTotalCount()));
+        }
+        stats.put("byProvider", providers);
+        return stats;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        byType.forEach((type, latency) ->
+                bindPercentiles(registry, "chat.message.latency", "type", type.name(), latency));
+        for (ModelProvider provider : modelRouter.getProviders()) {
+            bindPercentiles(registry, "ai.provider.latency", "provider", provider.getName(), provider.getLatency());
+        }
+    }
+    
+    // Each gauge merges the window on scrape; that is a few thousand additions per quantile
+    private static void bindPercentiles(MeterRegistry registry, String name, String tag, String value,
+                                        RollingLatencyHistogram latency) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double percentile = PERCENTILES[i];
+            Gauge.builder(name, latency, l -> l.snapshot().valueAtPercentile(percentile))
+                    .description("Latency percentile over the sliding window")
+                    .baseUnit("milliseconds")
+                    .tag(tag, value)
+                    .tag("quantile", QUANTILE_TAGS[i])
+                    .register(registry);
+        }
+        Gauge.builder(name + ".max", latency, l -> l.snapshot().getMax())
+                .description("Highest latency in the sliding window")
+                .baseUnit("milliseconds")
+                .tag(tag, value)
+                .register(registry);
+    }
+    
+    // totalCount is omitted when negative
+    private static Map<String, Object> summarize(LatencyHistogram window, long totalCount) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", window.getCount());
+        if (totalCount >= 0) {
+            summary.put("totalCount", totalCount);
+        }
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            summary.put(PERCENTILE_NAMES[i], window.valueAtPercentile(PERCENTILES[i]));
+        }
+        summary.put("maxMs", window.getMax());
+        return summary;
+    }
+}
@@ -0,0 +1,104 @@
+package main.java.com.hamza.chatbot_ai_image_generator.stats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency over a sliding window: a ring of {@link LatencyHistogram}s, one per time slot, merged on
+ * read. Old samples age out a slot at a time, so tail percentiles reflect recent traffic rather
+ * than everything since startup, and memory stays fixed.
+ */
+public class RollingLatencyHistogram {
+
+    private final long slotMillis;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<Slot> slots;
+    private final LongAdder totalCount = new LongAdder();
+    private volatile CachedSnapshot cached;
+    
+    public RollingLatencyHistogram(long windowMillis, int slotCount) {
+        this(windowMillis, slotCount, System::currentTimeMillis);
+    }
+    
+    public RollingLatencyHistogram(long windowMillis, int slotCount, LongSupplier clock) {
+        super();
+        this.slotMillis = Math.max(1, windowMillis / slotCount);
+        this.clock = clock;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+    }
+    
+    public void record(long latencyMillis) {
+        slot(clock.getAsLong() / slotMillis).histogram.record(latencyMillis);
+        totalCount.increment();
+    }
+    
+    /**
+     * Merge of the slots still inside the window.
+     */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram merged = new LatencyHistogram();
+        long current = clock.getAsLong() / slotMillis;
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.id > current - slots.length()) {
+                merged.merge(slot.histogram);
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Like {@link #snapshot()}, but reuses a merge taken less than {@code maxAgeMillis} ago, for
+     * callers that read percentiles on every request. The result is shared and must not be modified.
+     */
+    public LatencyHistogram snapshot(long maxAgeMillis) {
+        long now = clock.getAsLong();
+        CachedSnapshot current = cached;
+        if (current == null || now - current.takenAt() >= maxAgeMillis || now < current.takenAt()) {
+            // Racing refreshes each merge once; the last one written wins
+            current = new CachedSnapshot(snapshot(), now);
+            cached = current;
+        }
+        return current.histogram();
+    }
+    
+    /**
+     * Samples recorded since startup, including those that have left the window.
+     */
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+    
+    public long getWindowMillis() {
+        return slotMillis * slots.length();
+    }
+    
+    // A slot left from an earlier pass round the ring is replaced without locking
+    private Slot slot(long id) {
+        int index = (int) Math.floorMod(id, (long) slots.length());
+        while (true) {
+            Slot current = slots.get(index);
+            if (current != null && current.id >= id) {
+                return current;
+            }
+            Slot fresh = new Slot(id);
+            if (slots.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+    
+    private record CachedSnapshot(LatencyHistogram histogram, long takenAt) {
+    }
+    
+    private static final class Slot {
+        final long id;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        
+        Slot(long id) {
+            super();
+            this.id = id;
+        }
+    }
+}
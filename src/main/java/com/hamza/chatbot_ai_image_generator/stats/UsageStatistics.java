@@ -0,0 +1,276 @@
+package main.java.com.hamza.chatbot_ai_image_generator.stats;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage counters maintained as messages are saved and users register: totals and response-time
+ * sums per message type, plus hourly rollups for the last {@code retention-hours}. Seeded from the
+ * database once at startup; afterwards reading them never touches the tables. Clearing a chat
+ * history takes the deleted messages back out, including from the hours that still hold them.
+ */
+@Component
+public class UsageStatistics {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UsageStatistics.class);
+    private static final long SECONDS_PER_HOUR = 3600;
+    
+    private final ChatMessageRepository chatMessageRepository;
+    private final UserRepository userRepository;
+    private final int retentionHours;
+    private final Clock clock;
+    private final ZoneId zone;
+    
+    private final Map<MessageType, Counters> totals = new EnumMap<>(MessageType.class);
+    private final LongAdder users = new LongAdder();
+    private final AtomicReferenceArray<HourBucket> hours;
+    
+    @Autowired
+    public UsageStatistics(ChatMessageRepository chatMessageRepository,
+                           UserRepository userRepository,
+                           @Value("${app.stats.retention-hours:48}") int retentionHours) {
+        this(chatMessageRepository, userRepository, retentionHours, Clock.systemDefaultZone());
+    }
+    
+    public UsageStatistics(ChatMessageRepository chatMessageRepository,
+                           UserRepository userRepository,
+                           int retentionHours,
+                           Clock clock) {
+        super();
+        this.chatMessageRepository = chatMessageRepository;
+        this.userRepository = userRepository;
+        this.retentionHours = retentionHours;
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.hours = new AtomicReferenceArray<>(retentionHours);
+        for (MessageType type : MessageType.values()) {
+            totals.put(type, new Counters());
+        }
+    }
+    
+    // One pass over the tables at startup; the hourly rollups only read the retention window
+    @PostConstruct
+    public void seed() {
+        for (Object[] row : chatMessageRepository.summarizeResponseTimesByType()) {
+            Counters counters = totals.get((MessageType) row[0]);
+            counters.messages.add((Long) row[1]);
+            counters.responseTimeSum.add(row[2] == null ? 0 : ((Number) row[2]).longValue());
+            counters.responseTimeCount.add((Long) row[3]);
+        }
+        users.add(userRepository.count());
+        
+        LocalDateTime windowStart = LocalDateTime.ofInstant(
+                Instant.ofEpochSecond((currentHour() - retentionHours + 1) * SECONDS_PER_HOUR), zone);
+        for (Object[] row : chatMessageRepository.findUsageSince(windowStart)) {
+            HourBucket bucket = bucket(hourOf((LocalDateTime) row[0]));
+            if (bucket != null) {
+                bucket.add((MessageType) row[1], (Long) row[2]);
+            }
+        }
+        for (LocalDateTime createdAt : userRepository.findCreatedAtSince(windowStart)) {
+            HourBucket bucket = bucket(hourOf(createdAt));
+            if (bucket != null) {
+                bucket.users.increment();
+            }
+        }
+        logger.info("Usage statistics seeded: {} messages, {} users", totalMessages(), users.sum());
+    }
+    
+    public void recordMessage(MessageType type, LocalDateTime createdAt, Long responseTimeMs) {
+        Counters counters = totals.get(type);
+        counters.messages.increment();
+        if (responseTimeMs != null) {
+            counters.responseTimeSum.add(responseTimeMs);
+            counters.responseTimeCount.increment();
+        }
+        HourBucket bucket = bucket(createdAt == null ? currentHour() : hourOf(createdAt));
+        if (bucket != null) {
+            bucket.add(type, responseTimeMs);
+        }
+    }
+    
+    /**
+     * Takes deleted messages back out of the counters. Rows are (createdAt, messageType,
+     * responseTimeMs), as read by {@link ChatMessageRepository#findUsageByUserId(Long)}.
+     */
+    public void recordMessagesDeleted(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            MessageType type = (MessageType) row[1];
+            Long responseTimeMs = (Long) row[2];
+            Counters counters = totals.get(type);
+            counters.messages.decrement();
+            if (responseTimeMs != null) {
+                counters.responseTimeSum.add(-responseTimeMs);
+                counters.responseTimeCount.decrement();
+            }
+            // An hour that has left the window, or was never counted, has nothing to take back
+            long hour = hourOf((LocalDateTime) row[0]);
+            HourBucket bucket = hours.get(index(hour));
+            if (bucket != null && bucket.hour == hour) {
+                bucket.remove(type, responseTimeMs);
+            }
+        }
+    }
+    
+    public void recordUserRegistered() {
+        users.increment();
+        HourBucket bucket = bucket(currentHour());
+        if (bucket != null) {
+            bucket.users.increment();
+        }
+    }
+    
+    /**
+     * Totals, the last 24 hours and the hourly series, oldest hour first. Cost depends only on the
+     * number of message types and retained hours.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long responseTimeSum = 0;
+        long responseTimeCount = 0;
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (Map.Entry<MessageType, Counters> entry : totals.entrySet()) {
+            Counters counters = entry.getValue();
+            responseTimeSum += counters.responseTimeSum.sum();
+            responseTimeCount += counters.responseTimeCount.sum();
+            byType.put(entry.getKey().name(), Map.of(
+                    "messages", counters.messages.sum(),
+                    "averageResponseTimeMs", average(counters.responseTimeSum.sum(), counters.responseTimeCount.sum())));
+        }
+        stats.put("totalMessages", totalMessages());
+        stats.put("averageResponseTimeMs", average(responseTimeSum, responseTimeCount));
+        stats.put("byType", byType);
+        
+        long now = currentHour();
+        List<Map<String, Object>> hourly = new ArrayList<>();
+        long dayMessages = 0;
+        long dayUsers = 0;
+        Map<String, Long> dayByType = new LinkedHashMap<>();
+        for (long hour = now - retentionHours + 1; hour <= now; hour++) {
+            HourBucket bucket = hours.get(index(hour));
+            if (bucket == null || bucket.hour != hour) {
+                continue;
+            }
+            long messages = bucket.messages();
+            if (hour > now - 24) {
+                dayMessages += messages;
+                dayUsers += bucket.users.sum();
+                for (MessageType type : MessageType.values()) {
+                    dayByType.merge(type.name(), bucket.byType[type.ordinal()].sum(), Long::sum);
+                }
+            }
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("hourStart", LocalDateTime.ofInstant(Instant.ofEpochSecond(hour * SECONDS_PER_HOUR), zone));
+            point.put("messages", messages);
+            point.put("usersRegistered", bucket.users.sum());
+            point.put("averageResponseTimeMs", average(bucket.responseTimeSum.sum(), bucket.responseTimeCount.sum()));
+            hourly.add(point);
+        }
+        stats.put("users", Map.of("total", users.sum(), "registeredLast24Hours", dayUsers));
+        stats.put("last24Hours", Map.of("messages", dayMessages, "byType", dayByType));
+        stats.put("hourly", hourly);
+        return stats;
+    }
+    
+    private long totalMessages() {
+        return totals.values().stream().mapToLong(counters -> counters.messages.sum()).sum();
+    }
+    
+    // Null for hours older than the window; a slot left from an earlier hour is replaced without locking
+    private HourBucket bucket(long hour) {
+        if (hour <= currentHour() - retentionHours) {
+            return null;
+        }
+        int index = index(hour);
+        while (true) {
+            HourBucket current = hours.get(index);
+            if (current != null && current.hour == hour) {
+                return current;
+            }
+            if (current != null && current.hour > hour) {
+                return null;
+            }
+            HourBucket fresh = new HourBucket(hour);
+            if (hours.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+    
+    private int index(long hour) {
+        return (int) Math.floorMod(hour, (long) retentionHours);
+    }
+    
+    private long currentHour() {
+        return clock.millis() / 1000 / SECONDS_PER_HOUR;
+    }
+    
+    private long hourOf(LocalDateTime time) {
+        return time.atZone(zone).toEpochSecond() / SECONDS_PER_HOUR;
+    }
+    
+    private static double average(long sum, long count) {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+    
+    private static class Counters {
+        final LongAdder messages = new LongAdder();
+        final LongAdder responseTimeSum = new LongAdder();
+        final LongAdder responseTimeCount = new LongAdder();
+    }
+    
+    private static final class HourBucket extends Counters {
+        final long hour;
+        final LongAdder[] byType = new LongAdder[MessageType.values().length];
+        final LongAdder users = new LongAdder();
+        
+        HourBucket(long hour) {
+            super();
+            this.hour = hour;
+            for (int i = 0; i < byType.length; i++) {
+                byType[i] = new LongAdder();
+            }
+        }
+        
+        void add(MessageType type, Long responseTimeMs) {
+            messages.increment();
+            byType[type.ordinal()].increment();
+            if (responseTimeMs != null) {
+                responseTimeSum.add(responseTimeMs);
+                responseTimeCount.increment();
+            }
+        }
+        
+        void remove(MessageType type, Long responseTimeMs) {
+            messages.decrement();
+            byType[type.ordinal()].decrement();
+            if (responseTimeMs != null) {
+                responseTimeSum.add(-responseTimeMs);
+                responseTimeCount.decrement();
+            }
+        }
+        
+        long messages() {
+            return messages.sum();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entries expire after their time-to-live, the least recently used entry goes first when the
+ * cache is full, and keys ignore whitespace but not the model or temperature.
+ */
+class InMemoryResponseCacheTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	@Test
+	void entriesExpireAfterTheirTtl() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(10, Duration.ofSeconds(60), clock);
+		cache.put("key", "answer");
+
+		clock.advance(Duration.ofSeconds(59));
+		assertEquals("answer", cache.get("key").orElseThrow());
+
+		clock.advance(Duration.ofSeconds(1));
+		assertTrue(cache.get("key").isEmpty());
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getEvictions());
+		assertEquals(0, stats.getSize());
+	}
+
+	@Test
+	void leastRecentlyUsedEntryIsEvictedFirst() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(2, Duration.ofSeconds(60), clock);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+
+		assertTrue(cache.get("b").isEmpty());
+		assertEquals("1", cache.get("a").orElseThrow());
+		assertEquals("3", cache.get("c").orElseThrow());
+		assertEquals(1, cache.getStats().getEvictions());
+		assertEquals(2, cache.getStats().getSize());
+	}
+
+	@Test
+	void keysIgnoreWhitespaceButNotModelOrTemperature() {
+		String key = ResponseCacheKey.of("Tell me  a\njoke ", "gemini-pro", 0.7);
+
+		assertEquals(key, ResponseCacheKey.of("Tell me a joke", "gemini-pro", 0.7));
+		assertNotEquals(key, ResponseCacheKey.of("Tell me a joke", "mistral-small-latest", 0.7));
+		assertNotEquals(key, ResponseCacheKey.of("Tell me a joke", "gemini-pro", 0.2));
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package main.java.com.hamza.chatbot_ai_image_generator.cache;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups match only above the message type's threshold and only within that type, each message
+ * is embedded once whether it hits or misses, and entries leave by expiry or oldest-first eviction.
+ */
+class SemanticResponseCacheTest {
+
+	// Cosine similarity to EGG: BOILED_EGG about 0.99, EGG_RECIPE about 0.8, POEM 0
+	private static final Map<String, float[]> EMBEDDINGS = Map.of(
+			"how do I boil an egg", new float[] {1, 0},
+			"how to boil eggs", new float[] {0.99f, 0.14f},
+			"egg recipes", new float[] {0.8f, 0.6f},
+			"write a poem", new float[] {0, 1});
+
+	private final FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+	private final MutableClock clock = new MutableClock();
+
+	@Test
+	void matchesOnlyAboveTheThreshold() {
+		SemanticResponseCache cache = cache(100);
+		store(cache, MessageType.TEXT, "how do I boil an egg", "Ten minutes");
+
+		assertEquals("Ten minutes", cache.lookup(MessageType.TEXT, "how to boil eggs").getResponse().orElseThrow());
+		assertTrue(cache.lookup(MessageType.TEXT, "egg recipes").getResponse().isEmpty());
+		assertTrue(cache.lookup(MessageType.TEXT, "write a poem").getResponse().isEmpty());
+	}
+
+	@Test
+	void messageTypesDoNotShareAnswers() {
+		SemanticResponseCache cache = cache(100);
+		store(cache, MessageType.TEXT, "how do I boil an egg", "Ten minutes");
+
+		assertTrue(cache.lookup(MessageType.PDF_GENERATION, "how do I boil an egg").getResponse().isEmpty());
+		assertTrue(cache.lookup(MessageType.IMAGE_GENERATION, "how to boil eggs").getResponse().isEmpty());
+	}
+
+	@Test
+	void storingAnAnswerReusesTheLookupEmbedding() {
+		SemanticResponseCache cache = cache(100);
+
+		store(cache, MessageType.TEXT, "how do I boil an egg", "Ten minutes");
+		assertEquals(1, embeddingModel.calls.get());
+
+		cache.lookup(MessageType.TEXT, "how to boil eggs");
+		assertEquals(2, embeddingModel.calls.get());
+	}
+
+	@Test
+	void entriesExpireAfterTheirTtl() {
+		SemanticResponseCache cache = cache(100);
+		store(cache, MessageType.TEXT, "how do I boil an egg", "Ten minutes");
+
+		clock.advance(Duration.ofMinutes(59));
+		assertTrue(cache.lookup(MessageType.TEXT, "how do I boil an egg").getResponse().isPresent());
+
+		clock.advance(Duration.ofMinutes(1));
+		assertTrue(cache.lookup(MessageType.TEXT, "how do I boil an egg").getResponse().isEmpty());
+
+		// The next store purges the expired entry
+		store(cache, MessageType.TEXT, "write a poem", "Roses are red");
+		assertEquals(1, cache.getStats().get("size"));
+	}
+
+	@Test
+	void oldestEntryIsEvictedWhenFull() {
+		SemanticResponseCache cache = cache(2);
+		store(cache, MessageType.TEXT, "how do I boil an egg", "Ten minutes");
+		store(cache, MessageType.TEXT, "egg recipes", "Omelette");
+		store(cache, MessageType.TEXT, "write a poem", "Roses are red");
+
+		assertTrue(cache.lookup(MessageType.TEXT, "how do I boil an egg").getResponse().isEmpty());
+		assertEquals("Omelette", cache.lookup(MessageType.TEXT, "egg recipes").getResponse().orElseThrow());
+		assertEquals("Roses are red", cache.lookup(MessageType.TEXT, "write a poem").getResponse().orElseThrow());
+		assertEquals(2, cache.getStats().get("size"));
+		assertEquals(1L, cache.getStats().get("evictions"));
+	}
+
+	private SemanticResponseCache cache(int maxEntries) {
+		Map<MessageType, Double> thresholds = Map.of(
+				MessageType.TEXT, 0.95,
+				MessageType.IMAGE_GENERATION, 0.92,
+				MessageType.PDF_GENERATION, 0.95);
+		return new SemanticResponseCache(embeddingModel, thresholds, maxEntries, Duration.ofHours(1), clock);
+	}
+
+	private static void store(SemanticResponseCache cache, MessageType type, String message, String response) {
+		SemanticResponseCache.Lookup lookup = cache.lookup(type, message);
+		assertTrue(lookup.getResponse().isEmpty());
+		cache.put(lookup, response);
+	}
+
+	private static final class FixedEmbeddingModel implements EmbeddingModel {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			List<Embedding> embeddings = new ArrayList<>();
+			for (String text : request.getInstructions()) {
+				calls.incrementAndGet();
+				embeddings.add(new Embedding(EMBEDDINGS.get(text), embeddings.size()));
+			}
+			return new EmbeddingResponse(embeddings);
+		}
+
+		@Override
+		public float[] embed(Document document) {
+			calls.incrementAndGet();
+			return EMBEDDINGS.get(document.getText());
+		}
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The admin API and the Prometheus scrape endpoint are closed to ordinary accounts and open to
+ * those granted the ADMIN role through {@code app.security.admin-usernames}.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.rate-limit.enabled=false",
+		"app.security.admin-usernames=ops-admin"
+})
+@AutoConfigureMockMvc
+class AdminAccessTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserDetailsService userDetailsService;
+
+	@Autowired
+	private AdminAccounts adminAccounts;
+
+	@BeforeEach
+	void createUsers() {
+		for (String username : new String[] {"ops-admin", "regular"}) {
+			if (!userRepository.existsByUsername(username)) {
+				userRepository.save(new User(username, username + "@example.com", "not-a-real-hash"));
+			}
+		}
+		// The accounts did not exist when the context started
+		adminAccounts.promote();
+	}
+
+	@Test
+	void regularAccountsAreForbidden() throws Exception {
+		UserDetails regular = userDetailsService.loadUserByUsername("regular");
+
+		mockMvc.perform(get("/api/admin/stats").with(user(regular))).andExpect(status().isForbidden());
+		mockMvc.perform(delete("/api/admin/cache").with(user(regular))).andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/prometheus").with(user(regular))).andExpect(status().isForbidden());
+	}
+
+	@Test
+	void configuredAdminsAreAllowed() throws Exception {
+		UserDetails admin = userDetailsService.loadUserByUsername("ops-admin");
+
+		assertEquals(User.Role.ADMIN, userRepository.findByUsername("ops-admin").orElseThrow().getRole());
+		mockMvc.perform(get("/api/admin/stats").with(user(admin))).andExpect(status().isOk());
+		mockMvc.perform(delete("/api/admin/cache").with(user(admin))).andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/prometheus").with(user(admin))).andExpect(status().isOk());
+	}
+
+	@Test
+	void anonymousRequestsAreRejected() throws Exception {
+		mockMvc.perform(get("/api/admin/stats")).andExpect(status().is4xxClientError());
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().is4xxClientError());
+	}
+}
@@ -0,0 +1,94 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Logins hash on a one-thread pool with no queue: while that thread is busy a login is turned away
+ * with 429 rather than queued, and a login against a hash of a lower cost factor than configured
+ * stores a rehash at the configured one.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.rate-limit.enabled=false",
+		"app.security.bcrypt.strength=5",
+		"app.security.password-hashing.pool-size=1",
+		"app.security.password-hashing.queue-capacity=0"
+})
+@AutoConfigureMockMvc
+class PasswordHashingTest {
+
+	private static final String PASSWORD = "secret-password";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	@Qualifier("passwordHashingExecutor")
+	private ThreadPoolTaskExecutor passwordHashingExecutor;
+
+	@Test
+	void saturatedHashingPoolRejectsLoginWith429() throws Exception {
+		createUser("saturated", 5);
+		CountDownLatch release = new CountDownLatch(1);
+		passwordHashingExecutor.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		try {
+			login("saturated")
+					.andExpect(status().isTooManyRequests())
+					.andExpect(header().exists("Retry-After"));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void loginRehashesAtTheConfiguredStrength() throws Exception {
+		createUser("upgrading", 4);
+
+		login("upgrading").andExpect(status().isOk());
+
+		String stored = userRepository.findByUsername("upgrading").orElseThrow().getPassword();
+		assertTrue(stored.startsWith("$2a$05$"), "Password was not rehashed: " + stored);
+		login("upgrading").andExpect(status().isOk());
+	}
+
+	private void createUser(String username, int strength) {
+		if (!userRepository.existsByUsername(username)) {
+			String hash = new BCryptPasswordEncoder(strength).encode(PASSWORD);
+			userRepository.save(new User(username, username + "@example.com", hash));
+		}
+	}
+
+	private ResultActions login(String username) throws Exception {
+		return mockMvc.perform(post("/api/auth/login")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"));
+	}
+}
@@ -0,0 +1,120 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.BucketSpec;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.InMemoryRateLimitStore;
+import main.java.com.hamza.chatbot_ai_image_generator.ratelimit.RateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The filter buffers a limited request's body only up to its cap: a larger one is refused with 413
+ * before the rest is read, while a body under the cap reaches the controller unchanged. The type
+ * charged is the one the controller binds, and a body without a valid type is refused, not passed on.
+ */
+class RateLimitFilterTest {
+
+	private static final int MAX_BODY_BYTES = 1024;
+
+	private final RateLimitFilter filter = new RateLimitFilter(
+			new RateLimiter(new InMemoryRateLimitStore(), Map.of(
+					MessageType.TEXT, new BucketSpec(10, 60),
+					MessageType.IMAGE_GENERATION, new BucketSpec(2, 60)), Map.of()),
+			Jackson2ObjectMapperBuilder.json().build(),
+			MAX_BODY_BYTES);
+
+	@BeforeEach
+	void authenticate() {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				"limited", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void bodyOverTheCapIsRejectedWith413() throws Exception {
+		MockHttpServletRequest request = chatRequest("x".repeat(MAX_BODY_BYTES));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		filter.doFilter(request, response, chain);
+
+		assertEquals(413, response.getStatus());
+		assertNull(chain.getRequest());
+	}
+
+	@Test
+	void bodyUnderTheCapReachesTheControllerUnchanged() throws Exception {
+		MockHttpServletRequest request = chatRequest("hello");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		filter.doFilter(request, response, chain);
+
+		assertEquals(200, response.getStatus());
+		assertEquals("9", response.getHeader("RateLimit-Remaining"));
+		assertNotNull(chain.getRequest());
+		assertArrayEquals(request.getContentAsByteArray(), chain.getRequest().getInputStream().readAllBytes());
+	}
+
+	@Test
+	void repeatedTypeKeyIsChargedToTheTypeTheControllerBinds() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		// Jackson binds the last occurrence, so this is served as an image request
+		filter.doFilter(request("{\"messageType\":\"TEXT\",\"messageType\":\"IMAGE_GENERATION\",\"message\":\"a cat\"}"),
+				response, chain);
+
+		assertEquals(200, response.getStatus());
+		assertEquals("2", response.getHeader("RateLimit-Limit"));
+		assertEquals("1", response.getHeader("RateLimit-Remaining"));
+		assertNotNull(chain.getRequest());
+	}
+
+	@Test
+	void bodyWithoutAValidTypeIsRejectedUncharged() throws Exception {
+		for (String body : new String[] {
+				"{\"messageType\":\"IMAGE_GENERATION\",\"messageType\":\"BOGUS\",\"message\":\"a cat\"}",
+				"{\"message\":\"no type\"}",
+				"not json"}) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			MockFilterChain chain = new MockFilterChain();
+
+			filter.doFilter(request(body), response, chain);
+
+			assertEquals(400, response.getStatus(), body);
+			assertNull(chain.getRequest(), body);
+		}
+	}
+
+	private static MockHttpServletRequest chatRequest(String message) {
+		return request("{\"messageType\":\"TEXT\",\"message\":\"" + message + "\"}");
+	}
+
+	private static MockHttpServletRequest request(String body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/chat/message");
+		request.setContentType("application/json");
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+}
@@ -0,0 +1,98 @@
+package main.java.com.hamza.chatbot_ai_image_generator.config;
+
+import main.java.com.hamza.chatbot_ai_image_generator.cache.UserCache;
+import main.java.com.hamza.chatbot_ai_image_generator.service.JwtService;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Changing a password revokes every token issued before the change, even one whose claims are
+ * already in the verified-token cache or that was issued earlier in the same second, while the
+ * token returned by the change keeps working.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.rate-limit.enabled=false",
+		"app.security.bcrypt.strength=4"
+})
+@AutoConfigureMockMvc
+class TokenRevocationTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Test
+	void passwordChangeRevokesEarlierTokens() throws Exception {
+		String oldToken = token(mockMvc.perform(post("/api/auth/register")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"rotating\",\"email\":\"rotating@example.com\",\"password\":\"old-password\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		// Verified once, so later checks of this token are served from the cache
+		expectMe(oldToken, status().isOk());
+
+		// In a later second than the token, so the revocation does not lean on millisecond issue times
+		Thread.sleep(1_100);
+		String newToken = token(mockMvc.perform(post("/api/auth/change-password")
+						.header("Authorization", "Bearer " + oldToken)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"currentPassword\":\"old-password\",\"newPassword\":\"new-password\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+
+		expectMe(oldToken, status().isUnauthorized());
+		expectMe(newToken, status().isOk());
+	}
+
+	@Test
+	void tokenIssuedEarlierInTheSameSecondIsRevoked() throws Exception {
+		String oldToken = token(mockMvc.perform(post("/api/auth/register")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"same-second\",\"email\":\"same-second@example.com\",\"password\":\"old-password\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+
+		// Changed straight away: both tokens usually carry the same second-precision iat
+		String newToken = token(mockMvc.perform(post("/api/auth/change-password")
+						.header("Authorization", "Bearer " + oldToken)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"currentPassword\":\"old-password\",\"newPassword\":\"new-password\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+
+		expectMe(oldToken, status().isUnauthorized());
+		expectMe(newToken, status().isOk());
+		// A token carrying only the second-precision iat is rejected within the second of the change too
+		assertTrue(userCache.isRevoked("same-second", jwtService.extractClaim(oldToken, Claims::getIssuedAt)));
+	}
+
+	private void expectMe(String token, ResultMatcher expected) throws Exception {
+		mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + token)).andExpect(expected);
+	}
+
+	private String token(String body) throws Exception {
+		return objectMapper.readTree(body).get("token").asText();
+	}
+}
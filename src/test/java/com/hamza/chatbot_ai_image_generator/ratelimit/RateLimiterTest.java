@@ -0,0 +1,133 @@
+package main.java.com.hamza.chatbot_ai_image_generator.ratelimit;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the limiter with a manual clock: bursts up to capacity, refill over time, the global
+ * bucket capping many users, no over-granting when many threads race for the same bucket, and the
+ * outcome counters as Micrometer sees them.
+ */
+class RateLimiterTest {
+
+	private final AtomicLong clock = new AtomicLong();
+	private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(clock::get);
+
+	@Test
+	void userBucketAllowsBurstThenRefills() {
+		RateLimiter limiter = new RateLimiter(store, Map.of(MessageType.TEXT, new BucketSpec(3, 60)), Map.of());
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.acquire("alice", MessageType.TEXT).allowed());
+		}
+		RateLimitResult rejected = limiter.acquire("alice", MessageType.TEXT);
+		assertFalse(rejected.allowed());
+		assertEquals(0, rejected.remaining());
+		assertEquals(1, rejected.retryAfterSeconds());
+
+		// Other users and other message types have their own buckets
+		assertTrue(limiter.acquire("bob", MessageType.TEXT).allowed());
+		assertTrue(limiter.acquire("alice", MessageType.PDF_GENERATION).allowed());
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertTrue(limiter.acquire("alice", MessageType.TEXT).allowed());
+		assertFalse(limiter.acquire("alice", MessageType.TEXT).allowed());
+	}
+
+	@Test
+	void globalBucketCapsAllUsersAndRefundsTheUserToken() {
+		RateLimiter limiter = new RateLimiter(store,
+				Map.of(MessageType.TEXT, new BucketSpec(2, 60)),
+				Map.of(MessageType.TEXT, new BucketSpec(3, 60)));
+
+		assertTrue(limiter.acquire("alice", MessageType.TEXT).allowed());
+		assertTrue(limiter.acquire("bob", MessageType.TEXT).allowed());
+		assertTrue(limiter.acquire("carol", MessageType.TEXT).allowed());
+		assertFalse(limiter.acquire("dave", MessageType.TEXT).allowed());
+
+		// Dave's rejection by the global bucket did not cost him his own token
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertTrue(limiter.acquire("dave", MessageType.TEXT).allowed());
+		Map<?, ?> stats = (Map<?, ?>) limiter.getStats().get("TEXT");
+		assertEquals(4L, stats.get("allowed"));
+		assertEquals(1L, stats.get("globalRejected"));
+	}
+
+	@Test
+	void outcomesAreBoundAsCountersByTypeAndScope() {
+		RateLimiter limiter = new RateLimiter(store,
+				Map.of(MessageType.TEXT, new BucketSpec(1, 60)),
+				Map.of(MessageType.TEXT, new BucketSpec(2, 60)));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		limiter.bindTo(registry);
+
+		limiter.acquire("alice", MessageType.TEXT);
+		limiter.acquire("alice", MessageType.TEXT);
+		limiter.acquire("bob", MessageType.TEXT);
+		limiter.acquire("carol", MessageType.TEXT);
+
+		assertEquals(2.0, registry.get("rate.limit.allowed").tag("type", "TEXT").functionCounter().count());
+		assertEquals(1.0, registry.get("rate.limit.rejected").tags("type", "TEXT", "scope", "user").functionCounter().count());
+		assertEquals(1.0, registry.get("rate.limit.rejected").tags("type", "TEXT", "scope", "global").functionCounter().count());
+		assertEquals(0.0, registry.get("rate.limit.allowed").tag("type", "IMAGE_GENERATION").functionCounter().count());
+		assertEquals(4.0, registry.get("rate.limit.buckets").gauge().value());
+	}
+
+	@Test
+	void concurrentRequestsNeverExceedCapacity() throws Exception {
+		RateLimiter limiter = new RateLimiter(store, Map.of(MessageType.TEXT, new BucketSpec(100, 1)), Map.of());
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				int granted = 0;
+				for (int i = 0; i < 50; i++) {
+					if (limiter.acquire("alice", MessageType.TEXT).allowed()) {
+						granted++;
+					}
+				}
+				return granted;
+			}));
+		}
+		start.countDown();
+		int granted = 0;
+		for (Future<Integer> result : results) {
+			granted += result.get();
+		}
+		executor.shutdown();
+
+		assertEquals(100, granted);
+	}
+
+	@Test
+	void fullBucketsAreEvicted() {
+		RateLimiter limiter = new RateLimiter(store, Map.of(MessageType.TEXT, new BucketSpec(2, 60)), Map.of());
+		limiter.acquire("alice", MessageType.TEXT);
+		assertEquals(1, store.size());
+
+		store.evictFullBuckets();
+		assertEquals(1, store.size());
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		store.evictFullBuckets();
+		assertEquals(0, store.size());
+	}
+}
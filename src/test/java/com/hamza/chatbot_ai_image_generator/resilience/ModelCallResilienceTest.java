@@ -0,0 +1,173 @@
+package main.java.com.hamza.chatbot_ai_image_generator.resilience;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AITimeoutException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.AIUnavailableException;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.HedgedCallExecutor;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelProvider;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the router, breaker, deadline and bulkhead against a stub model that injects latency and
+ * errors, checking that a failing or slow provider is cut off quickly instead of holding threads.
+ */
+class ModelCallResilienceTest {
+
+	private static final long OPEN_DURATION_MS = 30_000;
+
+	private final AtomicLong clock = new AtomicLong();
+	private final Prompt prompt = new Prompt("hello");
+
+	private StubChatModel stub;
+	private CircuitBreaker breaker;
+	private ModelRouter router;
+	private HedgedCallExecutor executor;
+
+	@BeforeEach
+	void setUp() {
+		stub = new StubChatModel(Duration.ofMillis(10));
+		breaker = new CircuitBreaker("stub", 4, 4, 0.5, OPEN_DURATION_MS, 1, clock::get);
+		ModelProvider provider = new ModelProvider("stub", ChatClient.create(stub), "stub-model", 64, breaker);
+		router = new ModelRouter(List.of(provider), Map.of(), 0.5, 10, 0.0, new SimpleMeterRegistry());
+		executor = new HedgedCallExecutor(router, false, 95, 200, 20, 0.05, 10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void breakerOpensOnFailuresFailsFastAndRecovers() {
+		stub.setErrorRate(1.0);
+		for (int i = 0; i < 4; i++) {
+			RuntimeException failure = assertThrows(RuntimeException.class, this::callText);
+			assertFalse(failure instanceof AIUnavailableException, "provider failures pass through until the breaker trips");
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		long start = System.nanoTime();
+		AIUnavailableException rejected = assertThrows(AIUnavailableException.class, this::callText);
+		assertTrue(System.nanoTime() - start < Duration.ofMillis(50).toNanos(), "open breaker must reject without calling the model");
+		assertEquals(4, stub.getCalls());
+		assertEquals(OPEN_DURATION_MS / 1000, rejected.getRetryAfterSeconds());
+		assertFalse(router.isHealthy(router.getProviders().get(0)));
+
+		clock.addAndGet(OPEN_DURATION_MS);
+		stub.setErrorRate(0.0);
+		assertEquals("stub response", callText());
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void failedTrialCallReopensBreaker() {
+		stub.setErrorRate(1.0);
+		for (int i = 0; i < 4; i++) {
+			assertThrows(RuntimeException.class, this::callText);
+		}
+		clock.addAndGet(OPEN_DURATION_MS);
+
+		assertThrows(RuntimeException.class, this::callText);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertThrows(AIUnavailableException.class, this::callText);
+		assertEquals(5, stub.getCalls());
+	}
+
+	@Test
+	void deadlineCutsOffSlowCall() {
+		stub.setLatency(Duration.ofSeconds(5));
+
+		long start = System.nanoTime();
+		AIUnavailableException timeout = assertThrows(AIUnavailableException.class,
+				() -> executor.call(router.select(MessageType.TEXT), prompt, Duration.ofMillis(200)));
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertInstanceOf(AITimeoutException.class, timeout);
+		assertTrue(elapsedMillis < 1000, "caller waited " + elapsedMillis + " ms for a 200 ms deadline");
+		assertEquals(1, router.getProviders().get(0).getStats().getSampleCount());
+		assertEquals(1.0, router.getProviders().get(0).getStats().getErrorRate());
+	}
+
+	@Test
+	void lateAnswerAfterTheDeadlineIsNotRecordedAgain() throws InterruptedException {
+		stub.setLatency(Duration.ofMillis(300));
+		stub.setIgnoreInterrupts(true);
+
+		assertThrows(AITimeoutException.class,
+				() -> executor.call(router.select(MessageType.TEXT), prompt, Duration.ofMillis(50)));
+		assertTrue(waitUntil(() -> stub.getInFlight() == 0, Duration.ofSeconds(5)), "Stub call did not finish");
+		Thread.sleep(50);
+
+		// Only the timeout counts; the answer that arrived after it does not also count as a success
+		assertEquals(1, router.getProviders().get(0).getStats().getSampleCount());
+		assertEquals(1.0, router.getProviders().get(0).getStats().getErrorRate());
+	}
+
+	@Test
+	void bulkheadPermitIsHeldUntilTheCancelledCallReturns() throws InterruptedException {
+		stub.setLatency(Duration.ofMillis(300));
+		stub.setIgnoreInterrupts(true);
+		Bulkhead bulkhead = new Bulkhead("text", 1, 0);
+
+		bulkhead.acquire();
+		assertThrows(AITimeoutException.class,
+				() -> executor.call(router.select(MessageType.TEXT), prompt, Duration.ofMillis(50), bulkhead::release));
+
+		// The request is still running on the provider, so it still counts against the limit
+		assertEquals(1, stub.getInFlight());
+		assertEquals(1, bulkhead.getInUse());
+		assertThrows(AIUnavailableException.class, bulkhead::acquire);
+
+		assertTrue(waitUntil(() -> bulkhead.getInUse() == 0, Duration.ofSeconds(5)), "Permit was not released");
+		assertEquals(0, stub.getInFlight());
+	}
+
+	@Test
+	void bulkheadRejectsCallsBeyondItsLimit() {
+		Bulkhead bulkhead = new Bulkhead("image-generation", 1, 0);
+		bulkhead.acquire();
+		try {
+			assertThrows(AIUnavailableException.class, bulkhead::acquire);
+			assertEquals(1, bulkhead.getRejected());
+		} finally {
+			bulkhead.release();
+		}
+		bulkhead.acquire();
+		assertEquals(1, bulkhead.getInUse());
+		bulkhead.release();
+	}
+
+	private String callText() {
+		return executor.call(router.select(MessageType.TEXT), prompt, Duration.ofSeconds(5));
+	}
+
+	private static boolean waitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (System.nanoTime() < deadline) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return condition.getAsBoolean();
+	}
+}
@@ -0,0 +1,138 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.CircuitBreaker;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.RollingLatencyHistogram;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hedging against stub providers whose recent latency is set through a controllable clock: a hedge
+ * goes out only after the primary's p95 and only with enough recent samples, the losing call is
+ * cancelled, and the budget caps hedges at the configured burst.
+ */
+class HedgedCallExecutorTest {
+
+	private static final long WINDOW_MS = 60_000;
+	private static final long P95_MS = 100;
+	private static final Duration DEADLINE = Duration.ofSeconds(10);
+
+	private final AtomicLong clock = new AtomicLong();
+	private final Prompt prompt = new Prompt("hello");
+	private final StubChatModel primaryModel = new StubChatModel(Duration.ofSeconds(3));
+	private final StubChatModel hedgeModel = new StubChatModel(Duration.ofMillis(10));
+	private final ModelProvider primary = provider("primary", primaryModel);
+	private final ModelProvider secondary = provider("secondary", hedgeModel);
+	private final ModelRouter router = new ModelRouter(List.of(primary, secondary), Map.of(), 0.5, 10, 0.0,
+			new SimpleMeterRegistry());
+
+	private HedgedCallExecutor executor;
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void hedgeFiresAfterTheDelayWinsAndCancelsThePrimary() throws Exception {
+		executor = executor(0.05, 10);
+		recordRecentLatency(primary, P95_MS, 20);
+
+		long start = System.nanoTime();
+		assertEquals("stub response", executor.call(route(primary), prompt, DEADLINE));
+		long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+		assertTrue(elapsedMillis >= P95_MS, "Hedged before the p95 delay: " + elapsedMillis + "ms");
+		assertTrue(elapsedMillis < 1000, "Waited for the slow primary: " + elapsedMillis + "ms");
+		assertEquals(1, hedgeModel.getCalls());
+		assertEquals(1L, executor.getStats().get("hedgesFired"));
+		assertEquals(1L, executor.getStats().get("hedgesWon"));
+		assertTrue(waitUntil(() -> primaryModel.getInFlight() == 0, Duration.ofMillis(1000)),
+				"Losing primary call was not cancelled");
+	}
+
+	@Test
+	void fastPrimaryIsNotHedged() {
+		executor = executor(0.05, 10);
+		primaryModel.setLatency(Duration.ofMillis(10));
+		recordRecentLatency(primary, 500, 20);
+
+		assertEquals("stub response", executor.call(route(primary), prompt, DEADLINE));
+
+		assertEquals(0, hedgeModel.getCalls());
+		assertEquals(0L, executor.getStats().get("hedgesFired"));
+	}
+
+	@Test
+	void providerWithoutEnoughRecentSamplesIsNotHedged() {
+		executor = executor(0.05, 10);
+		primaryModel.setLatency(Duration.ofMillis(300));
+		recordRecentLatency(primary, P95_MS, 20);
+
+		// The samples age out of the latency window
+		clock.addAndGet(WINDOW_MS);
+		assertEquals("stub response", executor.call(route(primary), prompt, DEADLINE));
+
+		assertEquals(0, hedgeModel.getCalls());
+		assertEquals(0L, executor.getStats().get("hedgesDenied"));
+	}
+
+	@Test
+	void budgetCapsHedgesAtTheBurst() {
+		// No refill, so only the burst is available
+		executor = executor(0.0, 2);
+		primaryModel.setLatency(Duration.ofMillis(300));
+		recordRecentLatency(primary, P95_MS, 20);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals("stub response", executor.call(route(primary), prompt, DEADLINE));
+		}
+
+		assertEquals(2, hedgeModel.getCalls());
+		assertEquals(2L, executor.getStats().get("hedgesFired"));
+		assertEquals(1L, executor.getStats().get("hedgesDenied"));
+	}
+
+	private HedgedCallExecutor executor(double budgetRatio, int maxBurst) {
+		return new HedgedCallExecutor(router, true, 95, 20, 20, budgetRatio, maxBurst);
+	}
+
+	private ModelProvider provider(String name, StubChatModel model) {
+		CircuitBreaker breaker = new CircuitBreaker(name, 20, 10, 0.5, 30_000, 1, clock::get);
+		RollingLatencyHistogram latency = new RollingLatencyHistogram(WINDOW_MS, 6, clock::get);
+		return new ModelProvider(name, ChatClient.create(model), name + "-model", 64, breaker, latency, null);
+	}
+
+	private static RoutedModel route(ModelProvider provider) {
+		return new RoutedModel(provider, provider.getDefaultModel(), false);
+	}
+
+	private static void recordRecentLatency(ModelProvider provider, long latencyMillis, int samples) {
+		for (int i = 0; i < samples; i++) {
+			provider.getLatency().record(latencyMillis);
+		}
+	}
+
+	private static boolean waitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (System.nanoTime() < deadline) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return condition.getAsBoolean();
+	}
+}
@@ -0,0 +1,124 @@
+package main.java.com.hamza.chatbot_ai_image_generator.routing;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.resilience.CircuitBreaker;
+import main.java.com.hamza.chatbot_ai_image_generator.routing.ModelRouter.RouteOverride;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.RollingLatencyHistogram;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routing picks the fastest healthy provider by windowed p50, tries cold providers first, drops
+ * providers over the error-rate limit, and applies per-type overrides unless the pinned provider
+ * is unhealthy.
+ */
+class ModelRouterTest {
+
+	private static final int MIN_SAMPLES = 10;
+
+	private final AtomicLong clock = new AtomicLong();
+	private final ModelProvider slow = provider("slow");
+	private final ModelProvider fast = provider("fast");
+
+	@Test
+	void fastestHealthyProviderIsPreferred() {
+		record(slow, 500, false);
+		record(fast, 100, false);
+
+		RoutedModel route = router(Map.of()).select(MessageType.TEXT);
+
+		assertSame(fast, route.getProvider());
+		assertEquals("fast-model", route.getModel());
+		assertFalse(route.isModelOverridden());
+	}
+
+	@Test
+	void coldProviderIsTriedFirst() {
+		record(slow, 500, false);
+
+		assertSame(fast, router(Map.of()).select(MessageType.TEXT).getProvider());
+	}
+
+	@Test
+	void providerOverTheErrorRateIsExcluded() {
+		record(slow, 500, false);
+		record(fast, 100, true);
+		ModelRouter router = router(Map.of());
+
+		assertFalse(router.isHealthy(fast));
+		assertSame(slow, router.select(MessageType.TEXT).getProvider());
+		assertEquals(List.of(slow, fast), router.rank());
+	}
+
+	@Test
+	void overridePinsProviderAndModel() {
+		record(slow, 500, false);
+		record(fast, 100, false);
+		ModelRouter router = router(Map.of(MessageType.PDF_GENERATION, new RouteOverride("slow", "slow-large")));
+
+		RoutedModel pdf = router.select(MessageType.PDF_GENERATION);
+		assertSame(slow, pdf.getProvider());
+		assertEquals("slow-large", pdf.getModel());
+		assertTrue(pdf.isModelOverridden());
+
+		// Other message types are still routed by latency
+		assertSame(fast, router.select(MessageType.TEXT).getProvider());
+	}
+
+	@Test
+	void modelOnlyOverrideAppliesToTheRoutedProvider() {
+		record(slow, 500, false);
+		record(fast, 100, false);
+		ModelRouter router = router(Map.of(MessageType.TEXT, new RouteOverride(null, "custom-model")));
+
+		RoutedModel text = router.select(MessageType.TEXT);
+		assertSame(fast, text.getProvider());
+		assertEquals("custom-model", text.getModel());
+	}
+
+	@Test
+	void unhealthyOverrideFallsBackToRouting() {
+		record(slow, 500, true);
+		record(fast, 100, false);
+		ModelRouter router = router(Map.of(MessageType.IMAGE_GENERATION, new RouteOverride("slow", "slow-large")));
+
+		RoutedModel image = router.select(MessageType.IMAGE_GENERATION);
+		assertSame(fast, image.getProvider());
+		// The pinned model belongs to the pinned provider, so it is not sent elsewhere
+		assertEquals("fast-model", image.getModel());
+		assertFalse(image.isModelOverridden());
+	}
+
+	private ModelRouter router(Map<MessageType, RouteOverride> overrides) {
+		return new ModelRouter(List.of(slow, fast), overrides, 0.5, MIN_SAMPLES, 0.0, new SimpleMeterRegistry());
+	}
+
+	private ModelProvider provider(String name) {
+		CircuitBreaker breaker = new CircuitBreaker(name, 20, 10, 0.5, 30_000, 1, clock::get);
+		RollingLatencyHistogram latency = new RollingLatencyHistogram(60_000, 6, clock::get);
+		ChatClient client = ChatClient.create(new StubChatModel(Duration.ZERO));
+		return new ModelProvider(name, client, name + "-model", 64, breaker, latency, null);
+	}
+
+	private static void record(ModelProvider provider, long latencyMillis, boolean failure) {
+		for (int i = 0; i < 2 * MIN_SAMPLES; i++) {
+			if (failure) {
+				provider.recordFailure(latencyMillis);
+			} else {
+				provider.recordSuccess(latencyMillis);
+			}
+		}
+	}
+}
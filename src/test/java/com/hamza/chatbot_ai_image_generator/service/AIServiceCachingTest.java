@@ -0,0 +1,74 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.cache.ResponseCache;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Only real answers are cached: a repeated prompt is served without calling the model again, while
+ * a failed call or a blank answer leaves nothing behind for the next caller.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.ai.cache.enabled=true"
+})
+class AIServiceCachingTest {
+
+	@Autowired
+	private AIService aiService;
+
+	@Autowired
+	private ResponseCache responseCache;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void reset() {
+		responseCache.clear();
+		stub.setLatency(Duration.ZERO);
+		stub.setErrorRate(0.0);
+		stub.setResponse("stub response");
+	}
+
+	@Test
+	void repeatedPromptIsServedFromTheCache() {
+		int calls = stub.getCalls();
+
+		assertEquals("stub response", aiService.generateTextResponse("what is a cache"));
+		assertEquals("stub response", aiService.generateTextResponse("what is a cache"));
+
+		assertEquals(calls + 1, stub.getCalls());
+	}
+
+	@Test
+	void failedCallIsNotCached() {
+		stub.setErrorRate(1.0);
+		assertThrows(RuntimeException.class, () -> aiService.generateTextResponse("will this fail"));
+
+		stub.setErrorRate(0.0);
+		int calls = stub.getCalls();
+		assertEquals("stub response", aiService.generateTextResponse("will this fail"));
+		assertEquals(calls + 1, stub.getCalls());
+	}
+
+	@Test
+	void blankAnswerIsNotCached() {
+		stub.setResponse(" ");
+		aiService.generateTextResponse("say nothing");
+
+		stub.setResponse("something after all");
+		int calls = stub.getCalls();
+		assertEquals("something after all", aiService.generateTextResponse("say nothing"));
+		assertEquals(calls + 1, stub.getCalls());
+	}
+}
@@ -0,0 +1,89 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Identical prompts sent at the same time share one model call: every caller gets the leader's
+ * answer, or its failure, while the model is only asked once.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.ai.coalescing.enabled=true"
+})
+class AIServiceCoalescingTest {
+
+	private static final int CALLERS = 8;
+
+	// Long enough for every caller to arrive while the first call is still in flight
+	private static final Duration MODEL_LATENCY = Duration.ofMillis(500);
+
+	@Autowired
+	private AIService aiService;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void reset() {
+		stub.setLatency(MODEL_LATENCY);
+		stub.setErrorRate(0.0);
+		stub.setResponse("stub response");
+	}
+
+	@Test
+	void concurrentIdenticalPromptsMakeOneModelCall() throws Exception {
+		int calls = stub.getCalls();
+
+		List<Future<String>> answers = sendConcurrently("what is coalescing");
+
+		for (Future<String> answer : answers) {
+			assertEquals("stub response", answer.get());
+		}
+		assertEquals(calls + 1, stub.getCalls());
+	}
+
+	@Test
+	void leaderFailureReachesEveryFollower() throws Exception {
+		stub.setErrorRate(1.0);
+		int calls = stub.getCalls();
+
+		List<Future<String>> answers = sendConcurrently("will this coalesced call fail");
+
+		for (Future<String> answer : answers) {
+			assertThrows(ExecutionException.class, answer::get);
+		}
+		assertEquals(calls + 1, stub.getCalls());
+	}
+
+	private List<Future<String>> sendConcurrently(String message) {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> answers = new ArrayList<>();
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < CALLERS; i++) {
+				answers.add(callers.submit(() -> {
+					start.await();
+					return aiService.generateTextResponse(message);
+				}));
+			}
+			start.countDown();
+		}
+		return answers;
+	}
+}
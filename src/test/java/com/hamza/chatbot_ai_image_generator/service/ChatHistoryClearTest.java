@@ -0,0 +1,90 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clears a short history (single DELETE) and a history longer than one chunk (chunked DELETEs),
+ * checking that only the owner's rows go, that usage statistics drop by as many messages and that
+ * their generated files are removed afterwards.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.upload.dir=build/test-uploads",
+		"app.chat.clear.chunk-size=10"
+})
+class ChatHistoryClearTest {
+
+	private static final Path PDF_DIR = Paths.get("build/test-uploads", "pdfs");
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ChatMessageRepository chatMessageRepository;
+
+	@Autowired
+	private ChatMessageWriter chatMessageWriter;
+
+	@Autowired
+	private UsageStatistics usageStatistics;
+
+	@Test
+	void shortHistoryIsClearedInOneStatement() throws Exception {
+		assertClears("clear-short", 7);
+	}
+
+	@Test
+	void longHistoryIsClearedInChunks() throws Exception {
+		assertClears("clear-long", 35);
+	}
+
+	private void assertClears(String username, int messages) throws Exception {
+		User user = userRepository.save(new User(username, username + "@example.com", "not-a-real-hash"));
+		User bystander = userRepository.save(new User(username + "-other", username + "-other@example.com", "not-a-real-hash"));
+		Files.createDirectories(PDF_DIR);
+		Path pdf = Files.writeString(PDF_DIR.resolve(username + ".pdf"), "pdf");
+		for (int i = 0; i < messages; i++) {
+			ChatMessage message = new ChatMessage(user, "message " + i, ChatMessage.MessageType.PDF_GENERATION);
+			message.setPdfUrl(i == 0 ? "http://localhost:8080/api/pdfs/" + pdf.getFileName() : null);
+			// Through the writer, so the messages are counted the way chat traffic is
+			chatMessageWriter.save(message);
+		}
+		chatMessageRepository.save(new ChatMessage(bystander, "keep me", ChatMessage.MessageType.TEXT));
+		long usageBefore = totalMessages();
+
+		assertEquals(messages, chatService.clearChatHistory(username));
+		assertEquals(usageBefore - messages, totalMessages());
+
+		assertEquals(0, chatMessageRepository.countByUserId(user.getId()));
+		assertEquals(1, chatMessageRepository.countByUserId(bystander.getId()));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (Files.exists(pdf) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertFalse(Files.exists(pdf), "Generated file was not cleaned up");
+		assertTrue(Files.isDirectory(PDF_DIR));
+	}
+
+	private long totalMessages() {
+		return (long) usageStatistics.getStats().get("totalMessages");
+	}
+}
@@ -0,0 +1,123 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatHistoryResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.ResourceNotFoundException;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walks a user's history page by page with the cursor, including messages that share a timestamp,
+ * and checks every message is returned exactly once, newest first, and only the owner's, and that
+ * previews carry only the start of long responses.
+ */
+@StubModelTest
+class ChatHistoryPaginationTest {
+
+	private static final int MESSAGES = 45;
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ChatMessageRepository chatMessageRepository;
+
+	@BeforeEach
+	void createHistory() {
+		if (userRepository.existsByUsername("history")) {
+			return;
+		}
+		User user = userRepository.save(new User("history", "history@example.com", "not-a-real-hash"));
+		User other = userRepository.save(new User("other", "other@example.com", "not-a-real-hash"));
+		LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+		for (int i = 0; i < MESSAGES; i++) {
+			// Groups of three share a timestamp, so the id has to break the tie
+			chatMessageRepository.save(message(user, "message " + i, base.plusSeconds(i / 3)));
+			chatMessageRepository.save(message(other, "other " + i, base.plusSeconds(i / 3)));
+		}
+	}
+
+	@Test
+	void cursorVisitsEveryMessageOnceNewestFirst() {
+		List<ChatResponse> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			ChatHistoryResponse page = chatService.getChatHistory("history", cursor, 10, true);
+			seen.addAll(page.getMessages());
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(5, pages);
+		assertEquals(MESSAGES, seen.size());
+		assertEquals(MESSAGES, seen.stream().map(ChatResponse::getId).distinct().count());
+		for (int i = 1; i < seen.size(); i++) {
+			ChatResponse newer = seen.get(i - 1);
+			ChatResponse older = seen.get(i);
+			boolean ordered = newer.getTimestamp().isAfter(older.getTimestamp())
+					|| (newer.getTimestamp().isEqual(older.getTimestamp())
+							&& Long.parseLong(newer.getId()) > Long.parseLong(older.getId()));
+			assertTrue(ordered, "Out of order at " + i);
+			assertFalse(older.getMessage().startsWith("other"));
+		}
+	}
+
+	@Test
+	void lastPageHasNoCursorAndBadCursorIsRejected() {
+		ChatHistoryResponse all = chatService.getChatHistory("history", null, 100, false);
+		assertEquals(MESSAGES, all.getMessages().size());
+		assertNull(all.getNextCursor());
+		assertFalse(all.isHasNext());
+
+		assertThrows(BusinessException.class, () -> chatService.getChatHistory("history", "not-a-cursor", 10, true));
+	}
+
+	@Test
+	void previewTruncatesLongResponsesAndFullBodyIsFetchedById() {
+		User user = userRepository.findByUsername("history").orElseThrow();
+		ChatMessage message = message(user, "long answer", LocalDateTime.of(2025, 1, 1, 0, 0));
+		message.setAiResponse("x".repeat(5000));
+		Long id = chatMessageRepository.save(message).getId();
+
+		ChatResponse preview = chatService.getChatHistory("history", null, 100, true).getMessages().stream()
+				.filter(response -> response.getId().equals(id.toString()))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(200, preview.getResponse().length());
+		assertTrue(preview.getResponseTruncated());
+
+		ChatResponse full = chatService.getMessage("history", id);
+		assertEquals(5000, full.getResponse().length());
+		assertThrows(ResourceNotFoundException.class, () -> chatService.getMessage("other", id));
+
+		chatMessageRepository.deleteById(id);
+	}
+
+	private static ChatMessage message(User user, String content, LocalDateTime createdAt) {
+		ChatMessage message = new ChatMessage(user, content, ChatMessage.MessageType.TEXT);
+		message.setAiResponse("reply to " + content);
+		message.setCreatedAt(createdAt);
+		return message;
+	}
+}
@@ -0,0 +1,121 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saves messages from many threads at once through the write-behind writer and checks that every
+ * caller gets its message back with an id, all rows are stored, they went in shared batches, and
+ * the usage statistics counted each of them; and that one bad message fails only its own save.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.chat.persistence.write-behind.enabled=true",
+		"app.chat.persistence.batch-size=25"
+})
+class ChatMessageWriterTest {
+
+	private static final int WRITERS = 32;
+	private static final int MESSAGES_PER_WRITER = 20;
+
+	@Autowired
+	private ChatMessageWriter chatMessageWriter;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ChatMessageRepository chatMessageRepository;
+
+	@Autowired
+	private UsageStatistics usageStatistics;
+
+	@Test
+	void concurrentSavesAreBatched(TestReporter reporter) throws Exception {
+		User user = userRepository.save(new User("writer", "writer@example.com", "not-a-real-hash"));
+		long batchesBefore = (long) chatMessageWriter.getStats().get("batches");
+		long usageBefore = (long) usageStatistics.getStats().get("totalMessages");
+
+		ExecutorService clients = Executors.newFixedThreadPool(WRITERS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<ChatMessage>>> results = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			results.add(clients.submit(() -> {
+				start.await();
+				List<ChatMessage> saved = new ArrayList<>();
+				for (int i = 0; i < MESSAGES_PER_WRITER; i++) {
+					ChatMessage message = new ChatMessage(user, "writer " + writer + " message " + i, ChatMessage.MessageType.TEXT);
+					message.setAiResponse("reply");
+					saved.add(chatMessageWriter.save(message));
+				}
+				return saved;
+			}));
+		}
+		start.countDown();
+		for (Future<List<ChatMessage>> result : results) {
+			result.get().forEach(message -> assertNotNull(message.getId()));
+		}
+		clients.shutdown();
+
+		int total = WRITERS * MESSAGES_PER_WRITER;
+		assertEquals(total, chatMessageRepository.countByUserId(user.getId()));
+
+		Map<String, Object> stats = chatMessageWriter.getStats();
+		long batches = (long) stats.get("batches") - batchesBefore;
+		reporter.publishEntry("batching", total + " messages from " + WRITERS + " threads written in " + batches + " batches");
+		assertTrue(batches < total, "Every message was written in its own batch");
+
+		// Usage statistics are updated as batches are saved, without a query
+		assertEquals(total, (long) usageStatistics.getStats().get("totalMessages") - usageBefore);
+	}
+
+	@Test
+	void badRowFailsOnlyItsOwnSave() throws Exception {
+		User user = userRepository.save(new User("writer-bad-row", "writer-bad-row@example.com", "not-a-real-hash"));
+		long failedBefore = (long) chatMessageWriter.getStats().get("failed");
+
+		ExecutorService clients = Executors.newFixedThreadPool(WRITERS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<ChatMessage>> results = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			// Blank content fails validation, which fails whichever batch the message lands in
+			String content = w == 0 ? "" : "good message " + w;
+			results.add(clients.submit(() -> {
+				start.await();
+				return chatMessageWriter.save(new ChatMessage(user, content, ChatMessage.MessageType.TEXT));
+			}));
+		}
+		start.countDown();
+		assertThrows(ExecutionException.class, () -> results.get(0).get());
+		for (Future<ChatMessage> result : results.subList(1, WRITERS)) {
+			assertNotNull(result.get().getId());
+		}
+		clients.shutdown();
+
+		assertEquals(WRITERS - 1, chatMessageRepository.countByUserId(user.getId()));
+		assertEquals(1, (long) chatMessageWriter.getStats().get("failed") - failedBefore);
+	}
+}
@@ -0,0 +1,106 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends chats through the whole pipeline against a stub model and checks that each stage left
+ * its meter behind: the AI service call and where its answer came from, the model call and its
+ * tokens, the generation stages, the database save and the latency percentile gauges.
+ */
+@StubModelTest
+class ChatPipelineMetricsTest {
+
+	// The stub is the only chat model, so the router names the provider and model after its bean
+	private static final String PROVIDER = "stubChatModel";
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void createUser() {
+		if (!userRepository.existsByUsername("metrics")) {
+			userRepository.save(new User("metrics", "metrics@example.com", "not-a-real-hash"));
+		}
+		stub.setLatency(Duration.ofMillis(20));
+		stub.setErrorRate(0.0);
+	}
+
+	@Test
+	void textMessageIsTimedAtEveryStage() {
+		long requests = timerCount("ai.requests", "method", "text", "outcome", "success");
+		double modelAnswers = counterCount("ai.responses", "type", "TEXT", "source", "model");
+		long modelCalls = timerCount("ai.model.calls", "provider", PROVIDER, "outcome", "success");
+		double promptTokens = counterCount("ai.model.tokens", "provider", PROVIDER, "kind", "prompt");
+		double completionTokens = counterCount("ai.model.tokens", "provider", PROVIDER, "kind", "completion");
+		long saves = timerCount("chat.repository", "operation", "save", null, null);
+
+		chatService.processMessage(new ChatRequest("metrics text message", "TEXT"), "metrics");
+
+		assertEquals(requests + 1, timerCount("ai.requests", "method", "text", "outcome", "success"));
+		assertEquals(modelAnswers + 1, counterCount("ai.responses", "type", "TEXT", "source", "model"));
+		assertTrue(timerCount("ai.model.calls", "provider", PROVIDER, "outcome", "success") > modelCalls);
+		assertTrue(counterCount("ai.model.tokens", "provider", PROVIDER, "kind", "prompt")
+				>= promptTokens + StubChatModel.PROMPT_TOKENS);
+		assertTrue(counterCount("ai.model.tokens", "provider", PROVIDER, "kind", "completion")
+				>= completionTokens + StubChatModel.COMPLETION_TOKENS);
+		assertEquals(saves + 1, timerCount("chat.repository", "operation", "save", null, null));
+
+		Gauge p99 = meterRegistry.find("chat.message.latency").tag("type", "TEXT").tag("quantile", "0.99").gauge();
+		assertNotNull(p99);
+		assertTrue(p99.value() >= 20, "p99 below the model latency: " + p99.value());
+		assertNotNull(meterRegistry.find("ai.provider.latency").tag("provider", PROVIDER).tag("quantile", "0.999").gauge());
+	}
+
+	@Test
+	void imageGenerationStagesAreTimed() {
+		long prompt = timerCount("generation.stage", "generator", "image", "stage", "prompt");
+		long write = timerCount("generation.stage", "generator", "image", "stage", "write");
+
+		chatService.processMessage(new ChatRequest("a lighthouse at dusk", "IMAGE_GENERATION"), "metrics");
+
+		assertEquals(prompt + 1, timerCount("generation.stage", "generator", "image", "stage", "prompt"));
+		assertEquals(write + 1, timerCount("generation.stage", "generator", "image", "stage", "write"));
+		assertTrue(timerCount("ai.requests", "method", "image_prompt", "outcome", "success") >= 1);
+	}
+
+	private long timerCount(String name, String key, String value, String otherKey, String otherValue) {
+		Search search = meterRegistry.find(name).tag(key, value);
+		if (otherKey != null) {
+			search = search.tag(otherKey, otherValue);
+		}
+		Timer timer = search.timer();
+		return timer == null ? 0 : timer.count();
+	}
+
+	private double counterCount(String name, String key, String value, String otherKey, String otherValue) {
+		Counter counter = meterRegistry.find(name).tag(key, value).tag(otherKey, otherValue).counter();
+		return counter == null ? 0 : counter.count();
+	}
+}
@@ -0,0 +1,144 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives more concurrent chats than the pool has connections, once with a fast model and once with
+ * a slow one, and checks that pool occupancy does not follow the model latency: connections are
+ * only held for the lookup and the insert, never for the duration of the model call.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"spring.datasource.hikari.maximum-pool-size=4",
+		"spring.datasource.hikari.connection-timeout=2000"
+})
+class ChatServiceConnectionPoolLoadTest {
+
+	private static final int CONCURRENT_CHATS = 24;
+	private static final Duration FAST_MODEL = Duration.ofMillis(200);
+	private static final Duration SLOW_MODEL = Duration.ofMillis(1000);
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void createUser() {
+		if (!userRepository.existsByUsername("loadtest")) {
+			userRepository.save(new User("loadtest", "loadtest@example.com", "not-a-real-hash"));
+		}
+		stub.setErrorRate(0.0);
+	}
+
+	@Test
+	void poolOccupancyDoesNotScaleWithModelLatency(TestReporter reporter) throws Exception {
+		HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+		int poolSize = hikari.getMaximumPoolSize();
+
+		PoolUsage fast = runChats(hikari.getHikariPoolMXBean(), FAST_MODEL);
+		PoolUsage slow = runChats(hikari.getHikariPoolMXBean(), SLOW_MODEL);
+		for (PoolUsage usage : List.of(fast, slow)) {
+			reporter.publishEntry("connection pool", String.format(Locale.ROOT,
+					"%d chats, pool=%d, model latency=%dms: elapsed=%dms, peak active=%d, mean active=%.2f",
+					CONCURRENT_CHATS, poolSize, usage.latency().toMillis(), usage.elapsedMillis(),
+					usage.peakActive(), usage.meanActive()));
+
+			// Holding a connection across the model call would serialize the chats in pool-sized waves
+			// (CONCURRENT_CHATS / poolSize * latency) and keep the pool saturated for the whole run.
+			long serializedMillis = (long) CONCURRENT_CHATS / poolSize * usage.latency().toMillis();
+			assertTrue(usage.elapsedMillis() < serializedMillis / 2,
+					"Chats were serialized on the connection pool at " + usage.latency().toMillis() + "ms: "
+							+ usage.elapsedMillis() + "ms");
+		}
+
+		// Five times the latency, the same lookups and inserts: the connection time spent stays put.
+		// Holding a connection per model call would make it grow fivefold (about chats * latency).
+		assertTrue(slow.connectionMillis() < 2 * fast.connectionMillis() + 50,
+				"Connection time grew with model latency: " + fast.connectionMillis() + "ms -> "
+						+ slow.connectionMillis() + "ms");
+		assertEquals(0, hikari.getHikariPoolMXBean().getThreadsAwaitingConnection());
+	}
+
+	private PoolUsage runChats(HikariPoolMXBean pool, Duration latency) throws Exception {
+		stub.setLatency(latency);
+		AtomicBoolean sampling = new AtomicBoolean(true);
+		List<Integer> activeSamples = new ArrayList<>();
+		Thread sampler = new Thread(() -> {
+			while (sampling.get()) {
+				activeSamples.add(pool.getActiveConnections());
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+
+		ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_CHATS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < CONCURRENT_CHATS; i++) {
+			String message = "load test message " + latency.toMillis() + "ms " + i;
+			results.add(clients.submit(() -> {
+				start.await();
+				return chatService.processMessage(new ChatRequest(message, "TEXT"), "loadtest");
+			}));
+		}
+
+		sampler.start();
+		long startNanos = System.nanoTime();
+		start.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		long elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+		sampling.set(false);
+		sampler.join();
+		clients.shutdown();
+
+		int peakActive = activeSamples.stream().mapToInt(Integer::intValue).max().orElse(0);
+		double meanActive = activeSamples.stream().mapToInt(Integer::intValue).average().orElse(0);
+		return new PoolUsage(latency, elapsedMillis, peakActive, meanActive);
+	}
+
+	private record PoolUsage(Duration latency, long elapsedMillis, int peakActive, double meanActive) {
+
+		// Connection-milliseconds held over the run; scales with the latency if the model call holds one
+		long connectionMillis() {
+			return Math.round(meanActive * elapsedMillis);
+		}
+	}
+}
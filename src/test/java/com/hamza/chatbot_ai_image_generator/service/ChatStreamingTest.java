@@ -0,0 +1,164 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.LatencyHistograms;
+import main.java.com.hamza.chatbot_ai_image_generator.stats.UsageStatistics;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Streams chats through the SSE endpoint against a stub model: every token is relayed, the whole
+ * answer saved, off the reactive thread the stream completes on, and its latency recorded alongside
+ * non-streamed messages, and a stream whose emitter times out cancels the model stream instead of
+ * letting it run on.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "streamer")
+class ChatStreamingTest {
+
+	private static final String BODY = "{\"message\":\"stream me something\",\"messageType\":\"TEXT\"}";
+
+	// Whether the last save ran on a Reactor non-blocking thread, where waiting on a commit stalls other streams
+	private static final AtomicReference<Boolean> SAVED_ON_NON_BLOCKING_THREAD = new AtomicReference<>();
+
+	@TestConfiguration
+	static class ThreadRecordingWriterConfig {
+		@Bean
+		@Primary
+		ChatMessageWriter threadRecordingChatMessageWriter(ChatMessageRepository chatMessageRepository,
+														   UserRepository userRepository,
+														   PlatformTransactionManager transactionManager,
+														   ObjectMapper objectMapper,
+														   UsageStatistics usageStatistics) {
+			return new ChatMessageWriter(chatMessageRepository, userRepository, transactionManager, objectMapper, usageStatistics) {
+				@Override
+				public ChatMessage save(ChatMessage message) {
+					SAVED_ON_NON_BLOCKING_THREAD.set(Schedulers.isInNonBlockingThread());
+					return super.save(message);
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private LatencyHistograms latencyHistograms;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void createUser() {
+		if (!userRepository.existsByUsername("streamer")) {
+			userRepository.save(new User("streamer", "streamer@example.com", "not-a-real-hash"));
+		}
+		stub.setLatency(Duration.ofMillis(10));
+	}
+
+	@Test
+	void streamsEveryTokenAndSavesTheAnswer() throws Exception {
+		int completed = stub.getStreamsCompleted();
+		SAVED_ON_NON_BLOCKING_THREAD.set(null);
+		long latencies = latencyHistograms.getMessageLatency(ChatMessage.MessageType.TEXT).getTotalCount();
+
+		MvcResult result = mockMvc.perform(post("/api/chat/stream")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(BODY))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		result.getAsyncResult(5_000);
+
+		String events = result.getResponse().getContentAsString();
+		for (String token : StubChatModel.STREAM_TOKENS) {
+			assertTrue(events.contains("data:" + token), "Token not relayed: " + token);
+		}
+		assertTrue(events.contains("event:done"), events);
+		assertEquals(completed + 1, stub.getStreamsCompleted());
+		// The stub's tokens are delayed on Reactor's parallel scheduler, so it completes on a non-blocking thread
+		assertFalse(SAVED_ON_NON_BLOCKING_THREAD.get(), "Streamed message was saved on a non-blocking thread");
+		assertEquals(latencies + 1, latencyHistograms.getMessageLatency(ChatMessage.MessageType.TEXT).getTotalCount());
+
+		List<ChatResponse> latest = chatService.getChatHistory("streamer", null, 1, false).getMessages();
+		assertEquals(String.join("", StubChatModel.STREAM_TOKENS), latest.get(0).getResponse());
+	}
+
+	@Test
+	void emitterTimeoutCancelsTheModelStream() throws Exception {
+		stub.setLatency(Duration.ofMillis(500));
+		int completed = stub.getStreamsCompleted();
+		int cancelled = stub.getStreamsCancelled();
+
+		MvcResult result = mockMvc.perform(post("/api/chat/stream")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(BODY))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		// What the container does when the async request times out
+		MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(new AsyncEvent(asyncContext));
+		}
+
+		assertTrue(waitUntil(() -> stub.getStreamsCancelled() == cancelled + 1, Duration.ofSeconds(5)),
+				"Model stream was not cancelled");
+		Thread.sleep(2 * 500);
+		assertEquals(completed, stub.getStreamsCompleted());
+	}
+
+	private static boolean waitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (System.nanoTime() < deadline) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return condition.getAsBoolean();
+	}
+}
@@ -0,0 +1,156 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import main.java.com.hamza.chatbot_ai_image_generator.dto.ChatRequest;
+import main.java.com.hamza.chatbot_ai_image_generator.dto.GenerationJobResponse;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.GenerationJobRecord;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.BusinessException;
+import main.java.com.hamza.chatbot_ai_image_generator.exception.TooManyRequestsException;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.GenerationJobRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubChatModel;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Generation jobs run in the background and finish with their result persisted, SSE subscribers
+ * get the final status, a full generation queue is rejected, and a job cut off by a restart is
+ * reported as failed from the database.
+ */
+@StubModelTest
+@TestPropertySource(properties = {
+		"app.rate-limit.enabled=false",
+		"app.generation.pool.core-size=1",
+		"app.generation.pool.max-size=1",
+		"app.generation.pool.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "jobs")
+class GenerationJobServiceTest {
+
+	@Autowired
+	private GenerationJobService generationJobService;
+
+	@Autowired
+	private GenerationJobRepository jobRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private StubChatModel stub;
+
+	@BeforeEach
+	void createUser() {
+		if (!userRepository.existsByUsername("jobs")) {
+			userRepository.save(new User("jobs", "jobs@example.com", "not-a-real-hash"));
+		}
+		stub.setLatency(Duration.ofMillis(10));
+	}
+
+	@Test
+	void jobCompletesAndItsResultIsPersisted() throws Exception {
+		GenerationJobResponse submitted = generationJobService.submit(
+				new ChatRequest("a lighthouse at dusk", "IMAGE_GENERATION"), "jobs");
+		assertEquals("QUEUED", submitted.getStatus());
+
+		GenerationJobResponse finished = awaitFinished(submitted.getJobId());
+		assertEquals("COMPLETED", finished.getStatus());
+		assertNotNull(finished.getResult().getImageUrl());
+
+		GenerationJobRecord record = jobRepository.findById(submitted.getJobId()).orElseThrow();
+		assertEquals("COMPLETED", record.getStatus());
+		assertEquals(finished.getResult().getId(), String.valueOf(record.getChatMessageId()));
+	}
+
+	@Test
+	void subscriberReceivesTheFinalStatus() throws Exception {
+		stub.setLatency(Duration.ofMillis(200));
+		GenerationJobResponse submitted = generationJobService.submit(
+				new ChatRequest("a quarterly report", "PDF_GENERATION"), "jobs");
+
+		MvcResult result = mockMvc.perform(get("/api/chat/jobs/" + submitted.getJobId() + "/events"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		result.getAsyncResult(10_000);
+
+		String events = result.getResponse().getContentAsString();
+		assertTrue(events.contains("event:status"), events);
+		assertTrue(events.contains("\"status\":\"COMPLETED\""), events);
+	}
+
+	@Test
+	void onlyGenerationMessagesAreAccepted() {
+		assertThrows(BusinessException.class,
+				() -> generationJobService.submit(new ChatRequest("hello", "TEXT"), "jobs"));
+	}
+
+	@Test
+	void fullQueueIsRejected() throws Exception {
+		stub.setLatency(Duration.ofMillis(300));
+		List<String> accepted = new ArrayList<>();
+		// One worker and one queue slot
+		accepted.add(generationJobService.submit(new ChatRequest("first", "IMAGE_GENERATION"), "jobs").getJobId());
+		accepted.add(generationJobService.submit(new ChatRequest("second", "IMAGE_GENERATION"), "jobs").getJobId());
+		long persisted = jobRepository.count();
+
+		assertThrows(TooManyRequestsException.class,
+				() -> generationJobService.submit(new ChatRequest("third", "IMAGE_GENERATION"), "jobs"));
+		assertEquals(persisted, jobRepository.count());
+
+		for (String jobId : accepted) {
+			assertEquals("COMPLETED", awaitFinished(jobId).getStatus());
+		}
+	}
+
+	@Test
+	void jobInterruptedByARestartIsReportedAsFailed() {
+		String jobId = UUID.randomUUID().toString();
+		jobRepository.save(new GenerationJobRecord(jobId, "jobs", "PDF_GENERATION", "RUNNING", null, null,
+				LocalDateTime.now(), null));
+
+		// What startup does with jobs the previous run left behind
+		generationJobService.failInterruptedJobs();
+
+		GenerationJobResponse job = generationJobService.getJob(jobId, "jobs");
+		assertEquals("FAILED", job.getStatus());
+		assertNotNull(job.getError());
+		assertNotNull(job.getCompletedAt());
+		assertFalse(jobRepository.findByIdAndUsername(jobId, "someone-else").isPresent());
+	}
+
+	private GenerationJobResponse awaitFinished(String jobId) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		GenerationJobResponse job = generationJobService.getJob(jobId, "jobs");
+		while (!job.getStatus().equals("COMPLETED") && !job.getStatus().equals("FAILED")
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(20);
+			job = generationJobService.getJob(jobId, "jobs");
+		}
+		return job;
+	}
+}
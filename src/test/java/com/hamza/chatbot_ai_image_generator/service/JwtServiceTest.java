@@ -0,0 +1,79 @@
+package main.java.com.hamza.chatbot_ai_image_generator.service;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verified tokens are served from the cache only until they expire, and a full cache makes room by
+ * dropping expired tokens first, then those closest to expiring, without growing past its bound.
+ */
+class JwtServiceTest {
+
+	private static final String SECRET = "mySecretKey123456789012345678901234567890";
+
+	@Test
+	void expiredTokenIsNotServedFromTheCache() throws InterruptedException {
+		JwtService jwtService = new JwtService(SECRET, 1_000L, 100);
+		String token = jwtService.generateToken("short-lived");
+
+		assertEquals("short-lived", jwtService.parseToken(token).getSubject());
+		assertEquals("short-lived", jwtService.parseToken(token).getSubject());
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+
+		// The exp claim has second precision, so it is at most a second away
+		Thread.sleep(1_100);
+		assertThrows(ExpiredJwtException.class, () -> jwtService.parseToken(token));
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+	}
+
+	@Test
+	void fullCacheDropsExpiredTokensFirst() throws InterruptedException {
+		JwtService shortLived = new JwtService(SECRET, 1_000L, 0);
+		JwtService jwtService = new JwtService(SECRET, 60_000L, 2);
+		String expiring = shortLived.generateToken("expiring");
+		String kept = jwtService.generateToken("kept");
+
+		jwtService.parseToken(expiring);
+		jwtService.parseToken(kept);
+		Thread.sleep(1_100);
+		jwtService.parseToken(jwtService.generateToken("newcomer"));
+
+		assertEquals(2, jwtService.getTokenCacheStats().get("size"));
+		jwtService.parseToken(kept);
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+	}
+
+	@Test
+	void fullCacheDropsTheTokenClosestToExpiring() {
+		JwtService sooner = new JwtService(SECRET, 60_000L, 0);
+		JwtService jwtService = new JwtService(SECRET, 120_000L, 2);
+		String expiresSooner = sooner.generateToken("expires-sooner");
+		String expiresLater = jwtService.generateToken("expires-later");
+
+		jwtService.parseToken(expiresLater);
+		jwtService.parseToken(expiresSooner);
+		jwtService.parseToken(jwtService.generateToken("newcomer"));
+
+		jwtService.parseToken(expiresLater);
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+		jwtService.parseToken(expiresSooner);
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+	}
+
+	@Test
+	void cacheStaysAtItsBoundAsTokensArrive() {
+		JwtService jwtService = new JwtService(SECRET, 60_000L, 10);
+		String last = null;
+		for (int i = 0; i < 30; i++) {
+			last = jwtService.generateToken("user-" + i);
+			jwtService.parseToken(last);
+		}
+
+		assertEquals(10, jwtService.getTokenCacheStats().get("size"));
+		jwtService.parseToken(last);
+		assertEquals(1L, jwtService.getTokenCacheStats().get("hits"));
+	}
+}
@@ -0,0 +1,107 @@
+package main.java.com.hamza.chatbot_ai_image_generator.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Percentiles stay within the bucket precision of the exact values, merging is the same as
+ * recording into one histogram, and the rolling window drops slots as the clock moves on.
+ */
+class LatencyHistogramTest {
+
+	@Test
+	void percentilesAreWithinBucketPrecision() {
+		Random random = new Random(42);
+		long[] values = new long[100_000];
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < values.length; i++) {
+			// Long-tailed: mostly tens of milliseconds, a few tens of seconds
+			values[i] = (long) Math.exp(random.nextGaussian() * 1.5 + 5);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+
+		assertEquals(values.length, histogram.getCount());
+		assertEquals(values[values.length - 1], histogram.getMax());
+		for (double percentile : new double[] {50, 90, 99, 99.9}) {
+			long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			long estimate = histogram.valueAtPercentile(percentile);
+			assertTrue(estimate >= exact && estimate <= exact + exact / 32 + 1,
+					"p" + percentile + ": exact " + exact + ", estimate " + estimate);
+		}
+	}
+
+	@Test
+	void bucketsCoverEveryValueOnce() {
+		for (long value = 0; value < 1_000_000; value++) {
+			int index = LatencyHistogram.index(value);
+			assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+			if (index > 0) {
+				assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	void mergeMatchesRecordingIntoOneHistogram() {
+		LatencyHistogram fast = new LatencyHistogram();
+		LatencyHistogram slow = new LatencyHistogram();
+		LatencyHistogram combined = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			fast.record(i);
+			slow.record(i * 100);
+			combined.record(i);
+			combined.record(i * 100);
+		}
+
+		LatencyHistogram merged = new LatencyHistogram();
+		merged.merge(fast);
+		merged.merge(slow);
+
+		assertEquals(combined.getCount(), merged.getCount());
+		assertEquals(combined.getMax(), merged.getMax());
+		for (double percentile : new double[] {50, 90, 99, 99.9}) {
+			assertEquals(combined.valueAtPercentile(percentile), merged.valueAtPercentile(percentile));
+		}
+	}
+
+	@Test
+	void valuesAboveTheTrackableRangeAreClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-5);
+
+		assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_MILLIS, histogram.getMax());
+		assertEquals(0, histogram.valueAtPercentile(50));
+		assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_MILLIS, histogram.valueAtPercentile(100));
+	}
+
+	@Test
+	void rollingWindowDropsExpiredSlots() {
+		AtomicLong clock = new AtomicLong();
+		RollingLatencyHistogram rolling = new RollingLatencyHistogram(5_000, 5, clock::get);
+
+		rolling.record(5000);
+		clock.addAndGet(1_000);
+		for (int i = 0; i < 99; i++) {
+			rolling.record(10);
+		}
+		assertEquals(100, rolling.snapshot().getCount());
+		assertTrue(rolling.snapshot().valueAtPercentile(100) >= 5000);
+
+		// The slow sample's slot leaves the window; the fast ones are still inside it
+		clock.addAndGet(4_000);
+		assertEquals(99, rolling.snapshot().getCount());
+		assertEquals(10, rolling.snapshot().valueAtPercentile(99.9));
+
+		clock.addAndGet(5_000);
+		assertEquals(0, rolling.snapshot().getCount());
+		assertEquals(100, rolling.getTotalCount());
+	}
+}
@@ -0,0 +1,145 @@
+package main.java.com.hamza.chatbot_ai_image_generator.stats;
+
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.ChatMessage.MessageType;
+import main.java.com.hamza.chatbot_ai_image_generator.entity.User;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.ChatMessageRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.repository.UserRepository;
+import main.java.com.hamza.chatbot_ai_image_generator.support.StubModelTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the usage counters with a manual clock: hours leave the last-24-hours figures and then
+ * the hourly series as the clock moves on while the totals stay, seeding counts what is already
+ * in the database, and deleted messages come back out of both the totals and their hours.
+ */
+@StubModelTest
+class UsageStatisticsTest {
+
+	private static final int RETENTION_HOURS = 48;
+
+	@Autowired
+	private ChatMessageRepository chatMessageRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void hoursRollOutOfTheWindowButStayInTheTotals() {
+		MutableClock clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"), ZoneOffset.UTC);
+		UsageStatistics statistics = new UsageStatistics(chatMessageRepository, userRepository, RETENTION_HOURS, clock);
+
+		statistics.recordMessage(MessageType.TEXT, null, 100L);
+		statistics.recordMessage(MessageType.TEXT, null, 300L);
+		statistics.recordMessage(MessageType.IMAGE_GENERATION, LocalDateTime.of(2024, 12, 31, 6, 0), null);
+		statistics.recordUserRegistered();
+
+		assertEquals(3L, statistics.getStats().get("totalMessages"));
+		assertEquals(2L, last24Hours(statistics));
+		assertEquals(2, hourly(statistics).size());
+		assertEquals(200.0, hourly(statistics).get(1).get("averageResponseTimeMs"));
+
+		// The current hour leaves the last 24 hours; the message from 30 hours ago leaves the window
+		clock.advance(Duration.ofHours(24));
+		assertEquals(0L, last24Hours(statistics));
+		assertEquals(1, hourly(statistics).size());
+		assertEquals(2L, hourly(statistics).get(0).get("messages"));
+		assertEquals(1L, hourly(statistics).get(0).get("usersRegistered"));
+
+		// Same slot in the ring, a different hour: the old bucket is replaced, not added to
+		clock.advance(Duration.ofHours(RETENTION_HOURS - 24));
+		statistics.recordMessage(MessageType.PDF_GENERATION, null, null);
+		assertEquals(1, hourly(statistics).size());
+		assertEquals(1L, hourly(statistics).get(0).get("messages"));
+		assertEquals(1L, last24Hours(statistics));
+		assertEquals(4L, statistics.getStats().get("totalMessages"));
+	}
+
+	@Test
+	void seedingCountsStoredMessagesAndDeletesTakeThemBackOut() {
+		// A minute ahead, so messages saved during the test never fall in an hour after the clock's
+		MutableClock clock = new MutableClock(Instant.now().plusSeconds(60), ZoneId.systemDefault());
+		UsageStatistics before = seeded(clock);
+
+		User user = userRepository.save(new User("usage-seed", "usage-seed@example.com", "not-a-real-hash"));
+		for (int i = 0; i < 2; i++) {
+			ChatMessage message = new ChatMessage(user, "recent " + i, MessageType.TEXT);
+			message.setResponseTimeMs(50L);
+			chatMessageRepository.save(message);
+		}
+		ChatMessage old = new ChatMessage(user, "from yesterday", MessageType.TEXT);
+		old.setCreatedAt(LocalDateTime.now(clock).minusHours(30));
+		chatMessageRepository.save(old);
+
+		UsageStatistics after = seeded(clock);
+		assertEquals(3, totalMessages(after) - totalMessages(before));
+		assertEquals(2, last24Hours(after) - last24Hours(before));
+
+		after.recordMessagesDeleted(chatMessageRepository.findUsageByUserId(user.getId()));
+		assertEquals(totalMessages(before), totalMessages(after));
+		assertEquals(last24Hours(before), last24Hours(after));
+		assertEquals(before.getStats().get("averageResponseTimeMs"), after.getStats().get("averageResponseTimeMs"));
+	}
+
+	private UsageStatistics seeded(Clock clock) {
+		UsageStatistics statistics = new UsageStatistics(chatMessageRepository, userRepository, RETENTION_HOURS, clock);
+		statistics.seed();
+		return statistics;
+	}
+
+	private static long totalMessages(UsageStatistics statistics) {
+		return (long) statistics.getStats().get("totalMessages");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static long last24Hours(UsageStatistics statistics) {
+		return (long) ((Map<String, Object>) statistics.getStats().get("last24Hours")).get("messages");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, Object>> hourly(UsageStatistics statistics) {
+		return (List<Map<String, Object>>) statistics.getStats().get("hourly");
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private final ZoneId zone;
+		private Instant now;
+
+		MutableClock(Instant start, ZoneId zone) {
+			this.now = start;
+			this.zone = zone;
+		}
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return zone;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package main.java.com.hamza.chatbot_ai_image_generator.support;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process {@link ChatModel} that answers after a configurable delay and fails a configurable
+ * share of calls, so tests can exercise the chat pipeline without a real provider. Every answer
+ * has the same (settable) text and reports the same token usage. Streams emit {@link #STREAM_TOKENS} one per {@code latency}.
+ * Calls can be made to ignore interrupts, as a blocking HTTP request does, so they outlive their cancellation.
+ */
+public class StubChatModel implements ChatModel {
+
+	public static final int PROMPT_TOKENS = 12;
+	public static final int COMPLETION_TOKENS = 2;
+	public static final List<String> STREAM_TOKENS = List.of("stub", " streamed", " response");
+
+	private volatile Duration latency;
+	private volatile String response = "stub response";
+	private volatile double errorRate;
+	private volatile boolean ignoreInterrupts;
+	private final AtomicInteger calls = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+	private final AtomicInteger streamsCompleted = new AtomicInteger();
+	private final AtomicInteger streamsCancelled = new AtomicInteger();
+
+	public StubChatModel(Duration latency) {
+		super();
+		this.latency = latency;
+	}
+
+	@Override
+	public ChatResponse call(Prompt prompt) {
+		calls.incrementAndGet();
+		peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			if (ignoreInterrupts) {
+				sleepUninterruptibly(latency);
+			} else {
+				Thread.sleep(latency.toMillis());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Stub model call interrupted", e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			throw new IllegalStateException("Injected stub model failure");
+		}
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(response))),
+				ChatResponseMetadata.builder().usage(new DefaultUsage(PROMPT_TOKENS, COMPLETION_TOKENS)).build());
+	}
+
+	// Usage rides on the last chunk, as the real providers send it
+	@Override
+	public Flux<ChatResponse> stream(Prompt prompt) {
+		calls.incrementAndGet();
+		return Flux.range(0, STREAM_TOKENS.size())
+				.delayElements(latency.isZero() ? Duration.ofMillis(1) : latency)
+				.map(i -> {
+					ChatResponseMetadata metadata = i == STREAM_TOKENS.size() - 1
+							? ChatResponseMetadata.builder().usage(new DefaultUsage(PROMPT_TOKENS, COMPLETION_TOKENS)).build()
+							: ChatResponseMetadata.builder().build();
+					return new ChatResponse(List.of(new Generation(new AssistantMessage(STREAM_TOKENS.get(i)))), metadata);
+				})
+				.doOnComplete(streamsCompleted::incrementAndGet)
+				.doOnCancel(streamsCancelled::incrementAndGet);
+	}
+
+	public void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	public void setResponse(String response) {
+		this.response = response;
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public void setIgnoreInterrupts(boolean ignoreInterrupts) {
+		this.ignoreInterrupts = ignoreInterrupts;
+	}
+
+	public int getCalls() {
+		return calls.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getPeakInFlight() {
+		return peakInFlight.get();
+	}
+
+	public int getStreamsCompleted() {
+		return streamsCompleted.get();
+	}
+
+	public int getStreamsCancelled() {
+		return streamsCancelled.get();
+	}
+
+	public void resetPeakInFlight() {
+		peakInFlight.set(inFlight.get());
+	}
+
+	// Keeps the interrupt for the caller to see once the call returns
+	private static void sleepUninterruptibly(Duration duration) {
+		long deadline = System.nanoTime() + duration.toNanos();
+		boolean interrupted = false;
+		while (System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(Duration.ofNanos(deadline - System.nanoTime()));
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package main.java.com.hamza.chatbot_ai_image_generator.support;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Puts a {@link StubChatModel} in place of the real providers. The router names the provider and
+ * model after the bean, {@code stubChatModel}. Contexts are cached and shared between test classes,
+ * so a test that changes the stub's latency, error rate or response sets them before each test.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class StubModelConfig {
+
+	@Bean
+	@Primary
+	public StubChatModel stubChatModel() {
+		return new StubChatModel(Duration.ZERO);
+	}
+}
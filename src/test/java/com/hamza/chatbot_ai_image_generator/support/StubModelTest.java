@@ -0,0 +1,31 @@
+package main.java.com.hamza.chatbot_ai_image_generator.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Boots the application against {@link StubModelConfig} with every Spring AI model
+ * auto-configuration switched off, so no provider key or network is needed, and the response cache
+ * off. Test-specific settings go in {@code @TestPropertySource}, which overrides these.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest(properties = {
+		"spring.ai.model.chat=none",
+		"spring.ai.model.embedding=none",
+		"spring.ai.model.embedding.text=none",
+		"spring.ai.model.embedding.multimodal=none",
+		"spring.ai.model.moderation=none",
+		"spring.jpa.show-sql=false",
+		"app.ai.cache.enabled=false"
+})
+@Import(StubModelConfig.class)
+public @interface StubModelTest {
+}